@@ -0,0 +1,9 @@
+#!/bin/bash
+# Compile le projet et les bancs d'essai, puis lance le banc demandé
+# Usage: bench/run.sh <ClasseDuBanc> [arguments...]
+cd "$(dirname "$0")/.."
+mkdir -p bench/bin
+javac -encoding UTF-8 -d bench/bin -cp "lib/mysql-connector-j-8.4.0.jar" \
+    $(find src -name '*.java' ! -name 'module-info.java') \
+    $(find bench/src -name '*.java') || exit 1
+java -cp "bench/bin:lib/mysql-connector-j-8.4.0.jar" "bench.$1" "${@:2}"
@@ -0,0 +1,171 @@
+package bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import models.Message;
+import models.Utilisateur;
+import services.CryptoManager;
+import services.MemoireMessageStore;
+import services.MessageStore;
+
+/**
+ * Bancs d'essai des chemins critiques de la messagerie, sans base MySQL :
+ * - chiffrement et déchiffrement selon la taille du message et le moteur
+ * - envoi, boîte de réception et accusé de lecture sur le stockage embarqué (volatil et journalisé)
+ * - aller-retour complet : chiffrer, envoyer, ouvrir, déchiffrer, marquer comme lu
+ * Rapporte débit, latence moyenne / p50 / p99 et allocations (voir Mesure)
+ *
+ * Usage (depuis la racine du projet):
+ *   bench/run.sh CheminsCritiquesBenchmark [iterations] [--moteurs java,pool]
+ *       [--csv resultats.csv] [--reference reference.csv] [--tolerance 0.25]
+ * Avec --reference, le code de sortie vaut 1 si un débit est inférieur à la référence moins la tolérance
+ * (le fichier écrit par --csv sert de référence pour les exécutions suivantes)
+ */
+public class CheminsCritiquesBenchmark {
+    // Utilisateur dont les clés sont générées pour la durée du banc
+    private static final String UTILISATEUR = "BENCH_CHEMINS";
+    private static final int[] TAILLES = { 16, 128, 1024 };
+    private static final int TAILLE_PAGE = 20;
+
+    public static void main(String[] args) throws Exception {
+        int iterations = 2000;
+        String moteurs = CryptoManager.BACKEND_JAVA + "," + CryptoManager.BACKEND_POOL;
+        Path csv = null;
+        Path reference = null;
+        double tolerance = 0.25;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--moteurs": moteurs = args[++i]; break;
+                case "--csv": csv = Path.of(args[++i]); break;
+                case "--reference": reference = Path.of(args[++i]); break;
+                case "--tolerance": tolerance = Double.parseDouble(args[++i]); break;
+                default: iterations = Integer.parseInt(args[i]);
+            }
+        }
+        int echauffement = Math.max(100, iterations / 5);
+
+        List<Mesure.Resultat> resultats = new ArrayList<>();
+        System.out.println(Mesure.Resultat.entete());
+
+        // Les moteurs à processus écrivent leurs messages d'état sur la sortie standard
+        PrintStream sortie = System.out;
+        PrintStream silencieux = new PrintStream(OutputStream.nullOutputStream());
+
+        try {
+            for (String moteur : moteurs.split(",")) {
+                CryptoManager crypto = new CryptoManager(moteur);
+                try {
+                    // Clés par défaut du moteur (en Java, taille choisie par -Dcrypto.bitsCles)
+                    crypto.genererCles(UTILISATEUR);
+                    for (int taille : TAILLES) {
+                        String texte = "m".repeat(taille);
+                        String chiffre = crypto.chiffrerMessage(UTILISATEUR, texte);
+
+                        System.setOut(silencieux);
+                        Mesure.Resultat chiffrement = Mesure.mesurer("crypto/" + moteur + "/chiffrer/" + taille,
+                            echauffement, iterations, i -> crypto.chiffrerMessage(UTILISATEUR, texte));
+                        Mesure.Resultat dechiffrement = Mesure.mesurer("crypto/" + moteur + "/dechiffrer/" + taille,
+                            echauffement, iterations, i -> crypto.dechiffrerMessage(UTILISATEUR, chiffre));
+                        System.setOut(sortie);
+                        afficher(resultats, chiffrement);
+                        afficher(resultats, dechiffrement);
+                    }
+
+                    System.setOut(silencieux);
+                    Mesure.Resultat allerRetour = allerRetour(crypto, moteur, echauffement, iterations);
+                    System.setOut(sortie);
+                    afficher(resultats, allerRetour);
+                } finally {
+                    System.setOut(sortie);
+                    crypto.fermer();
+                }
+            }
+
+            stockage(resultats, "stockage/memoire", new MemoireMessageStore(), echauffement, iterations);
+            Path repertoire = Files.createTempDirectory("bench-journal");
+            try {
+                stockage(resultats, "stockage/journal", new MemoireMessageStore(repertoire), echauffement, iterations);
+            } finally {
+                supprimer(repertoire);
+            }
+        } finally {
+            Files.deleteIfExists(Path.of("keys", UTILISATEUR + "_public.key"));
+            Files.deleteIfExists(Path.of("keys", UTILISATEUR + "_private.key"));
+        }
+
+        if (csv != null) {
+            Mesure.ecrireCsv(resultats, csv);
+        }
+        if (reference != null && !Mesure.comparer(resultats, reference, tolerance)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Envoi, page de boîte de réception et accusé de lecture sur un stockage embarqué
+     */
+    private static void stockage(List<Mesure.Resultat> resultats, String prefixe, MessageStore store,
+            int echauffement, int iterations) throws Exception {
+        store.initialiser();
+        try {
+            store.ajouterUtilisateur(new Utilisateur("expediteur", "", ""));
+            store.ajouterUtilisateur(new Utilisateur("destinataire", "", ""));
+            int expediteur = store.getUtilisateur("expediteur").getId();
+            int destinataire = store.getUtilisateur("destinataire").getId();
+            String chiffre = "RSA2:" + "0123456789abcdef".repeat(16);
+
+            afficher(resultats, Mesure.mesurer(prefixe + "/envoyer", echauffement, iterations,
+                i -> store.envoyerMessage(new Message(expediteur, destinataire, chiffre))));
+            afficher(resultats, Mesure.mesurer(prefixe + "/boite", echauffement, iterations,
+                i -> store.getMessagesRecus(destinataire, null, 0, TAILLE_PAGE)));
+            afficher(resultats, Mesure.mesurer(prefixe + "/ouvrir", echauffement, iterations,
+                i -> store.getContenuChiffre(i + 1, destinataire)));
+            afficher(resultats, Mesure.mesurer(prefixe + "/lecture", echauffement, iterations,
+                i -> store.signalerLecture(i + 1)));
+        } finally {
+            store.fermer();
+        }
+    }
+
+    /**
+     * Chiffrer, envoyer, ouvrir (contenu chiffré), déchiffrer et signaler la lecture, sur le stockage en mémoire
+     */
+    private static Mesure.Resultat allerRetour(CryptoManager crypto, String moteur, int echauffement, int iterations)
+            throws Exception {
+        MessageStore store = new MemoireMessageStore();
+        store.ajouterUtilisateur(new Utilisateur(UTILISATEUR, "", ""));
+        int id = store.getUtilisateur(UTILISATEUR).getId();
+        String texte = "m".repeat(TAILLES[1]);
+
+        return Mesure.mesurer("bout-en-bout/" + moteur, echauffement, iterations, i -> {
+            Message message = new Message(id, id, crypto.chiffrerMessage(UTILISATEUR, texte));
+            store.envoyerMessage(message);
+            String lu = crypto.dechiffrerMessage(UTILISATEUR, store.getContenuChiffre(message.getId(), id));
+            if (!texte.equals(lu)) {
+                throw new IllegalStateException("Aller-retour incorrect");
+            }
+            store.signalerLecture(message.getId());
+        });
+    }
+
+    private static void afficher(List<Mesure.Resultat> resultats, Mesure.Resultat resultat) {
+        resultats.add(resultat);
+        System.out.println(resultat);
+    }
+
+    private static void supprimer(Path repertoire) throws IOException {
+        try (Stream<Path> chemins = Files.walk(repertoire)) {
+            for (Path chemin : chemins.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(chemin);
+            }
+        }
+    }
+}
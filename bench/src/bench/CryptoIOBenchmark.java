@@ -0,0 +1,68 @@
+package bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import services.CryptoManager;
+
+/**
+ * Compare le débit chiffrement + déchiffrement selon le mode d'échange avec le moteur:
+ * fichiers temporaires, flux stdin/stdout du processus C, processus C gardés en vie (pool),
+ * ou calcul en mémoire dans la JVM
+ *
+ * Usage (depuis la racine du projet): bench/run.sh CryptoIOBenchmark [utilisateur] [iterations] [taille]
+ * Les messages d'état du module C arrivent sur stderr: ajouter 2>/dev/null pour les masquer
+ */
+public class CryptoIOBenchmark {
+
+    public static void main(String[] args) {
+        String utilisateur = args.length > 0 ? args[0] : "AYMEN";
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int taille = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        String message = "m".repeat(taille);
+        String[] backends = {
+            CryptoManager.BACKEND_PROCESSUS_FICHIERS,
+            CryptoManager.BACKEND_PROCESSUS,
+            CryptoManager.BACKEND_POOL,
+            CryptoManager.BACKEND_JAVA
+        };
+
+        System.out.printf("Aller-retour chiffrer/dechiffrer, %d octets, %d iterations, cle de %s%n",
+            taille, iterations, utilisateur);
+
+        for (String backend : backends) {
+            CryptoManager crypto = new CryptoManager(backend);
+
+            // Le moteur par fichiers recopie la sortie du module C sur System.out
+            PrintStream sortie = System.out;
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            long duree;
+            try {
+                // Échauffement (JIT, cache disque)
+                allerRetour(crypto, utilisateur, message, Math.max(1, iterations / 10));
+
+                long debut = System.nanoTime();
+                allerRetour(crypto, utilisateur, message, iterations);
+                duree = System.nanoTime() - debut;
+            } finally {
+                System.setOut(sortie);
+            }
+
+            double secondes = duree / 1e9;
+            System.out.printf("  %-20s %10.1f msg/s   %10.3f ms/msg%n",
+                backend, iterations / secondes, (secondes * 1000) / iterations);
+            crypto.fermer();
+        }
+    }
+
+    private static void allerRetour(CryptoManager crypto, String utilisateur, String message, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            String chiffre = crypto.chiffrerMessage(utilisateur, message);
+            String clair = crypto.dechiffrerMessage(utilisateur, chiffre);
+            if (!message.equals(clair)) {
+                throw new IllegalStateException("Aller-retour incorrect pour " + utilisateur);
+            }
+        }
+    }
+}
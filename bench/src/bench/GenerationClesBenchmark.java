@@ -0,0 +1,78 @@
+package bench;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import services.crypto.CleRSA;
+import services.crypto.MoteurRSA;
+import services.crypto.PaireCles;
+
+/**
+ * Banc d'essai de la génération de clés RSA par taille de module (moteur Java, Miller-Rabin)
+ * Pour chaque taille : durée de génération d'une paire, puis chiffrement et déchiffrement d'un bloc,
+ * avec la clé privée CRT (p et q connus) et avec la clé réduite à (n, d) pour comparaison
+ * La durée de génération varie beaucoup d'une paire à l'autre : regarder p50 et p99 plutôt que la moyenne
+ *
+ * Usage (depuis la racine du projet):
+ *   bench/run.sh GenerationClesBenchmark [paires] [--tailles 1024,2048,3072] [--operations 500]
+ *       [--csv resultats.csv] [--reference reference.csv] [--tolerance 0.25]
+ */
+public class GenerationClesBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int paires = 10;
+        int operations = 500;
+        String tailles = "1024,2048,3072";
+        Path csv = null;
+        Path reference = null;
+        double tolerance = 0.25;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--tailles": tailles = args[++i]; break;
+                case "--operations": operations = Integer.parseInt(args[++i]); break;
+                case "--csv": csv = Path.of(args[++i]); break;
+                case "--reference": reference = Path.of(args[++i]); break;
+                case "--tolerance": tolerance = Double.parseDouble(args[++i]); break;
+                default: paires = Integer.parseInt(args[i]);
+            }
+        }
+
+        List<Mesure.Resultat> resultats = new ArrayList<>();
+        System.out.println(Mesure.Resultat.entete());
+
+        for (String taille : tailles.split(",")) {
+            int bits = Integer.parseInt(taille.trim());
+            String prefixe = "cles/" + bits;
+
+            afficher(resultats, Mesure.mesurer(prefixe + "/generer", Math.max(1, paires / 5), paires,
+                i -> MoteurRSA.genererCles(bits)));
+
+            PaireCles paire = MoteurRSA.genererCles(bits);
+            CleRSA privee = paire.getPrivee();
+            CleRSA sansCRT = new CleRSA(privee.getN(), privee.getExposant(), false);
+            String texte = "m".repeat(Math.max(1, (bits - 1) / 8));
+            String chiffre = MoteurRSA.chiffrer(paire.getPublique(), texte);
+            int echauffement = Math.max(10, operations / 5);
+
+            afficher(resultats, Mesure.mesurer(prefixe + "/chiffrer", echauffement, operations,
+                i -> MoteurRSA.chiffrer(paire.getPublique(), texte)));
+            afficher(resultats, Mesure.mesurer(prefixe + "/dechiffrer-crt", echauffement, operations,
+                i -> MoteurRSA.dechiffrer(privee, chiffre)));
+            afficher(resultats, Mesure.mesurer(prefixe + "/dechiffrer-sans-crt", echauffement, operations,
+                i -> MoteurRSA.dechiffrer(sansCRT, chiffre)));
+        }
+
+        if (csv != null) {
+            Mesure.ecrireCsv(resultats, csv);
+        }
+        if (reference != null && !Mesure.comparer(resultats, reference, tolerance)) {
+            System.exit(1);
+        }
+    }
+
+    private static void afficher(List<Mesure.Resultat> resultats, Mesure.Resultat resultat) {
+        resultats.add(resultat);
+        System.out.println(resultat);
+    }
+}
@@ -0,0 +1,183 @@
+package bench;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Petit harnais de mesure pour les bancs d'essai (sans dépendance externe)
+ * Chaque opération est chronométrée individuellement après une phase d'échauffement :
+ * débit, latence moyenne, p50 et p99, octets alloués par opération (thread courant)
+ * et activité du ramasse-miettes pendant la mesure
+ */
+final class Mesure {
+
+    /**
+     * Opération mesurée ; i est le numéro de l'itération
+     */
+    @FunctionalInterface
+    interface Operation {
+        void executer(int i) throws Exception;
+    }
+
+    /**
+     * Résultat d'une mesure
+     */
+    static final class Resultat {
+        final String nom;
+        final int iterations;
+        final long totalNanos;
+        final long p50Nanos;
+        final long p99Nanos;
+        final long octetsAlloues;
+        final long collections;
+        final long dureeCollectionsMs;
+
+        private Resultat(String nom, long[] durees, long octetsAlloues, long collections, long dureeCollectionsMs) {
+            this.nom = nom;
+            this.iterations = durees.length;
+            this.totalNanos = Arrays.stream(durees).sum();
+            Arrays.sort(durees);
+            this.p50Nanos = durees[(int) (durees.length * 0.50)];
+            this.p99Nanos = durees[Math.min(durees.length - 1, (int) (durees.length * 0.99))];
+            this.octetsAlloues = octetsAlloues;
+            this.collections = collections;
+            this.dureeCollectionsMs = dureeCollectionsMs;
+        }
+
+        double getOperationsParSeconde() {
+            return iterations / (totalNanos / 1e9);
+        }
+
+        double getMoyenneUs() {
+            return totalNanos / 1e3 / iterations;
+        }
+
+        /**
+         * Débit d'allocation en Mo/s (-1 si la JVM ne le mesure pas)
+         */
+        double getAllocationMoParSeconde() {
+            return octetsAlloues < 0 ? -1 : octetsAlloues / 1e6 / (totalNanos / 1e9);
+        }
+
+        static String entete() {
+            return String.format("%-40s %12s %10s %10s %10s %12s %10s %6s",
+                "banc", "ops/s", "moy us", "p50 us", "p99 us", "octets/op", "Mo/s", "gc");
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-40s %12.1f %10.2f %10.2f %10.2f %12s %10s %6s",
+                nom, getOperationsParSeconde(), getMoyenneUs(), p50Nanos / 1e3, p99Nanos / 1e3,
+                octetsAlloues < 0 ? "n/d" : String.valueOf(octetsAlloues / iterations),
+                octetsAlloues < 0 ? "n/d" : String.format("%.1f", getAllocationMoParSeconde()),
+                collections + "/" + dureeCollectionsMs + "ms");
+        }
+
+        String ligneCsv() {
+            return String.format(Locale.ROOT, "%s;%.1f;%.2f;%.2f;%.2f;%d",
+                nom, getOperationsParSeconde(), getMoyenneUs(), p50Nanos / 1e3, p99Nanos / 1e3,
+                octetsAlloues < 0 ? -1 : octetsAlloues / iterations);
+        }
+    }
+
+    private Mesure() {
+    }
+
+    /**
+     * Exécute l'opération (échauffement puis mesure) et retourne le résultat
+     */
+    static Resultat mesurer(String nom, int echauffement, int iterations, Operation operation) throws Exception {
+        for (int i = 0; i < echauffement; i++) {
+            operation.executer(i);
+        }
+
+        long[] durees = new long[iterations];
+        long collectionsAvant = collections();
+        long dureeCollectionsAvant = dureeCollections();
+        long octetsAvant = octetsAlloues();
+
+        for (int i = 0; i < iterations; i++) {
+            long debut = System.nanoTime();
+            operation.executer(echauffement + i);
+            durees[i] = System.nanoTime() - debut;
+        }
+
+        long octetsApres = octetsAlloues();
+        return new Resultat(nom, durees,
+            octetsAvant < 0 ? -1 : octetsApres - octetsAvant,
+            collections() - collectionsAvant,
+            dureeCollections() - dureeCollectionsAvant);
+    }
+
+    /**
+     * Enregistre les résultats au format CSV (séparateur ;), réutilisable comme référence
+     */
+    static void ecrireCsv(List<Resultat> resultats, Path csv) throws IOException {
+        List<String> lignes = new ArrayList<>();
+        lignes.add("banc;ops_s;moy_us;p50_us;p99_us;octets_op");
+        resultats.forEach(resultat -> lignes.add(resultat.ligneCsv()));
+        Files.write(csv, lignes);
+    }
+
+    /**
+     * Compare les débits à ceux d'un fichier CSV de référence ; false en cas de régression
+     */
+    static boolean comparer(List<Resultat> resultats, Path reference, double tolerance) throws IOException {
+        Map<String, Double> debits = new HashMap<>();
+        for (String ligne : Files.readAllLines(reference)) {
+            String[] champs = ligne.split(";");
+            if (champs.length > 1 && !champs[0].equals("banc")) {
+                debits.put(champs[0], Double.parseDouble(champs[1]));
+            }
+        }
+
+        boolean conforme = true;
+        for (Resultat resultat : resultats) {
+            Double attendu = debits.get(resultat.nom);
+            if (attendu != null && resultat.getOperationsParSeconde() < attendu * (1 - tolerance)) {
+                System.out.printf("REGRESSION %s: %.1f ops/s (reference %.1f)%n",
+                    resultat.nom, resultat.getOperationsParSeconde(), attendu);
+                conforme = false;
+            }
+        }
+        return conforme;
+    }
+
+    /**
+     * Octets alloués par le thread courant depuis son démarrage (-1 si non disponible)
+     */
+    private static long octetsAlloues() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static long collections() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long dureeCollections() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,94 @@
+package bench;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+import database.MigrationsSchema;
+
+/**
+ * Compare le plan d'exécution et la latence de la requête de boîte de réception
+ * sans les index des migrations (IGNORE INDEX) puis avec
+ *
+ * Nécessite une base MessageSecurise accessible, idéalement avec un volume de messages réaliste
+ * Usage (depuis la racine du projet): bench/run.sh PlanRequetesBenchmark [destinataire_id] [iterations]
+ * Paramètres de connexion: -Ddb.url=... -Ddb.user=... -Ddb.password=... (via JAVA_TOOL_OPTIONS)
+ */
+public class PlanRequetesBenchmark {
+    private static final String URL = System.getProperty("db.url",
+        "jdbc:mysql://localhost:3306/MessageSecurise?serverTimezone=UTC&useSSL=false");
+    private static final String USER = System.getProperty("db.user", "root");
+    private static final String PASSWORD = System.getProperty("db.password", "ton_mot_de_passe");
+
+    // Première page de la boîte de réception (voir DatabaseManager.getMessagesRecus paginé)
+    private static final String REQUETE = "SELECT m.id, m.expediteur_id, m.date_envoi, m.lu FROM Messages m %s"
+        + "WHERE m.destinataire_id = ? ORDER BY m.date_envoi DESC, m.id DESC LIMIT 20";
+    private static final String SANS_INDEX =
+        "IGNORE INDEX (idx_messages_destinataire_date, idx_messages_destinataire_lu) ";
+
+    public static void main(String[] args) throws SQLException {
+        int destinataireId = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+
+        try (Connection connexion = DriverManager.getConnection(URL, USER, PASSWORD)) {
+            new MigrationsSchema().appliquer(connexion);
+
+            System.out.printf("Boite de reception du destinataire %d, %d iterations%n", destinataireId, iterations);
+            mesurer(connexion, "sans index", String.format(REQUETE, SANS_INDEX), destinataireId, iterations);
+            mesurer(connexion, "avec index", String.format(REQUETE, ""), destinataireId, iterations);
+        }
+    }
+
+    private static void mesurer(Connection connexion, String nom, String sql, int destinataireId, int iterations)
+            throws SQLException {
+        System.out.println("\n" + nom + ":");
+        afficherPlan(connexion, sql, destinataireId);
+
+        // Échauffement puis mesure
+        executer(connexion, sql, destinataireId, Math.max(1, iterations / 10));
+        long debut = System.nanoTime();
+        executer(connexion, sql, destinataireId, iterations);
+        long duree = System.nanoTime() - debut;
+        System.out.printf("  %10.1f us/requete%n", duree / 1e3 / iterations);
+    }
+
+    /**
+     * Affiche les colonnes utiles de EXPLAIN (type d'accès, index choisi, lignes estimées, tri)
+     */
+    private static void afficherPlan(Connection connexion, String sql, int destinataireId) throws SQLException {
+        try (PreparedStatement pstmt = connexion.prepareStatement("EXPLAIN " + sql)) {
+            pstmt.setInt(1, destinataireId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                while (rs.next()) {
+                    StringBuilder ligne = new StringBuilder("  plan:");
+                    for (int i = 1; i <= meta.getColumnCount(); i++) {
+                        String colonne = meta.getColumnLabel(i);
+                        if (colonne.equalsIgnoreCase("type") || colonne.equalsIgnoreCase("key")
+                                || colonne.equalsIgnoreCase("rows") || colonne.equalsIgnoreCase("Extra")) {
+                            ligne.append(' ').append(colonne).append('=').append(rs.getString(i));
+                        }
+                    }
+                    System.out.println(ligne);
+                }
+            }
+        }
+    }
+
+    private static void executer(Connection connexion, String sql, int destinataireId, int iterations)
+            throws SQLException {
+        try (PreparedStatement pstmt = connexion.prepareStatement(sql)) {
+            for (int i = 0; i < iterations; i++) {
+                pstmt.setInt(1, destinataireId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        rs.getInt(1);
+                    }
+                }
+            }
+        }
+    }
+}
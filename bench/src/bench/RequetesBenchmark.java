@@ -0,0 +1,68 @@
+package bench;
+
+import java.sql.SQLException;
+
+import database.PoolConnexionJDBC;
+import models.Utilisateur;
+import services.DatabaseManager;
+
+/**
+ * Mesure la latence par appel des requêtes de DatabaseManager,
+ * sans puis avec le cache de statements préparés côté serveur du driver MySQL
+ *
+ * Nécessite une base MessageSecurise accessible et un utilisateur existant
+ * Usage (depuis la racine du projet): bench/run.sh RequetesBenchmark [utilisateur] [iterations]
+ * Paramètres de connexion: -Ddb.url=... -Ddb.user=... -Ddb.password=... (via JAVA_TOOL_OPTIONS)
+ */
+public class RequetesBenchmark {
+    private static final String URL_BASE = System.getProperty("db.url",
+        "jdbc:mysql://localhost:3306/MessageSecurise?serverTimezone=UTC&useSSL=false");
+    private static final String USER = System.getProperty("db.user", "root");
+    private static final String PASSWORD = System.getProperty("db.password", "ton_mot_de_passe");
+
+    public static void main(String[] args) throws SQLException {
+        String nomUtilisateur = args.length > 0 ? args[0] : "AYMEN";
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        System.out.printf("Latence par appel, %d iterations, utilisateur %s%n", iterations, nomUtilisateur);
+        mesurer("sans cache", URL_BASE + "&useServerPrepStmts=false&cachePrepStmts=false", nomUtilisateur, iterations);
+        mesurer("cache serveur", URL_BASE
+            + "&useServerPrepStmts=true&cachePrepStmts=true&prepStmtCacheSize=64&prepStmtCacheSqlLimit=2048",
+            nomUtilisateur, iterations);
+    }
+
+    private static void mesurer(String nom, String url, String nomUtilisateur, int iterations) throws SQLException {
+        DatabaseManager db = new DatabaseManager(new PoolConnexionJDBC(url, USER, PASSWORD, 1, 1,
+            PoolConnexionJDBC.DELAI_EMPRUNT_DEFAUT_MS, PoolConnexionJDBC.DELAI_INACTIVITE_DEFAUT_MS,
+            PoolConnexionJDBC.SEUIL_FUITE_DEFAUT_MS));
+        db.initialiser();
+        try {
+            Utilisateur utilisateur = db.getUtilisateur(nomUtilisateur);
+            if (utilisateur == null) {
+                throw new IllegalStateException("Utilisateur introuvable: " + nomUtilisateur);
+            }
+
+            // Échauffement (JIT, préparation des requêtes)
+            executer(db, utilisateur, Math.max(1, iterations / 10));
+
+            long debut = System.nanoTime();
+            executer(db, utilisateur, iterations);
+            long duree = System.nanoTime() - debut;
+
+            System.out.printf("  %-15s %10.1f us/appel%n", nom, duree / 1e3 / (iterations * 2.0));
+        } finally {
+            db.fermer();
+        }
+    }
+
+    /**
+     * Alterne une lecture et une mise à jour par itération (même SQL à chaque fois)
+     */
+    private static void executer(DatabaseManager db, Utilisateur utilisateur, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            db.getUtilisateur(utilisateur.getNomUtilisateur());
+            // Identifiant inexistant: la requête est exécutée sans modifier de ligne
+            db.marquerCommeLu(-1);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package app;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lecture et écriture minimales de JSON pour le protocole du serveur (un objet par ligne)
+ * Les requêtes sont des objets plats : valeurs chaînes, nombres, booléens ou null
+ * Les réponses peuvent contenir des objets (Map) et des tableaux (List) imbriqués
+ */
+final class JsonLigne {
+
+    private JsonLigne() {
+    }
+
+    /**
+     * Lit un objet JSON plat ; lève IllegalArgumentException si la ligne est invalide
+     */
+    static Map<String, Object> lireObjet(String ligne) {
+        Lecteur lecteur = new Lecteur(ligne);
+        Map<String, Object> objet = new LinkedHashMap<>();
+
+        lecteur.attendre('{');
+        if (!lecteur.consommer('}')) {
+            do {
+                String cle = lecteur.lireChaine();
+                lecteur.attendre(':');
+                objet.put(cle, lecteur.lireValeur());
+            } while (lecteur.consommer(','));
+            lecteur.attendre('}');
+        }
+        lecteur.finAttendue();
+        return objet;
+    }
+
+    /**
+     * Écrit une valeur (Map, List, String, Number, Boolean ou null) sur une seule ligne
+     */
+    static String ecrire(Object valeur) {
+        StringBuilder sortie = new StringBuilder();
+        ecrire(sortie, valeur);
+        return sortie.toString();
+    }
+
+    private static void ecrire(StringBuilder sortie, Object valeur) {
+        if (valeur == null) {
+            sortie.append("null");
+        } else if (valeur instanceof Map) {
+            sortie.append('{');
+            boolean premier = true;
+            for (Map.Entry<?, ?> entree : ((Map<?, ?>) valeur).entrySet()) {
+                if (!premier) sortie.append(',');
+                premier = false;
+                ecrireChaine(sortie, String.valueOf(entree.getKey()));
+                sortie.append(':');
+                ecrire(sortie, entree.getValue());
+            }
+            sortie.append('}');
+        } else if (valeur instanceof List) {
+            sortie.append('[');
+            boolean premier = true;
+            for (Object element : (List<?>) valeur) {
+                if (!premier) sortie.append(',');
+                premier = false;
+                ecrire(sortie, element);
+            }
+            sortie.append(']');
+        } else if (valeur instanceof Number || valeur instanceof Boolean) {
+            sortie.append(valeur);
+        } else {
+            ecrireChaine(sortie, valeur.toString());
+        }
+    }
+
+    private static void ecrireChaine(StringBuilder sortie, String texte) {
+        sortie.append('"');
+        for (int i = 0; i < texte.length(); i++) {
+            char c = texte.charAt(i);
+            switch (c) {
+                case '"': sortie.append("\\\""); break;
+                case '\\': sortie.append("\\\\"); break;
+                case '\n': sortie.append("\\n"); break;
+                case '\r': sortie.append("\\r"); break;
+                case '\t': sortie.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sortie.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sortie.append(c);
+                    }
+            }
+        }
+        sortie.append('"');
+    }
+
+    /**
+     * Curseur de lecture sur une ligne JSON
+     */
+    private static final class Lecteur {
+        private final String texte;
+        private int position;
+
+        private Lecteur(String texte) {
+            this.texte = texte;
+        }
+
+        private void sauterEspaces() {
+            while (position < texte.length() && Character.isWhitespace(texte.charAt(position))) position++;
+        }
+
+        private boolean consommer(char attendu) {
+            sauterEspaces();
+            if (position < texte.length() && texte.charAt(position) == attendu) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void attendre(char attendu) {
+            if (!consommer(attendu)) {
+                throw new IllegalArgumentException("JSON invalide: '" + attendu + "' attendu en position " + position);
+            }
+        }
+
+        private void finAttendue() {
+            sauterEspaces();
+            if (position != texte.length()) {
+                throw new IllegalArgumentException("JSON invalide: contenu après l'objet en position " + position);
+            }
+        }
+
+        private Object lireValeur() {
+            sauterEspaces();
+            if (position >= texte.length()) {
+                throw new IllegalArgumentException("JSON invalide: valeur manquante");
+            }
+            char c = texte.charAt(position);
+            if (c == '"') return lireChaine();
+            if (texte.startsWith("true", position)) { position += 4; return Boolean.TRUE; }
+            if (texte.startsWith("false", position)) { position += 5; return Boolean.FALSE; }
+            if (texte.startsWith("null", position)) { position += 4; return null; }
+
+            int debut = position;
+            while (position < texte.length() && "+-0123456789.eE".indexOf(texte.charAt(position)) >= 0) position++;
+            String nombre = texte.substring(debut, position);
+            try {
+                if (nombre.matches("-?\\d+")) {
+                    return Long.parseLong(nombre);
+                }
+                return Double.parseDouble(nombre);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("JSON invalide: valeur non prise en charge en position " + debut);
+            }
+        }
+
+        private String lireChaine() {
+            attendre('"');
+            StringBuilder chaine = new StringBuilder();
+            while (position < texte.length()) {
+                char c = texte.charAt(position++);
+                if (c == '"') {
+                    return chaine.toString();
+                }
+                if (c != '\\') {
+                    chaine.append(c);
+                    continue;
+                }
+                if (position >= texte.length()) break;
+                char echappe = texte.charAt(position++);
+                switch (echappe) {
+                    case '"': chaine.append('"'); break;
+                    case '\\': chaine.append('\\'); break;
+                    case '/': chaine.append('/'); break;
+                    case 'b': chaine.append('\b'); break;
+                    case 'f': chaine.append('\f'); break;
+                    case 'n': chaine.append('\n'); break;
+                    case 'r': chaine.append('\r'); break;
+                    case 't': chaine.append('\t'); break;
+                    case 'u':
+                        if (position + 4 > texte.length()) break;
+                        try {
+                            chaine.append((char) Integer.parseInt(texte.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("JSON invalide: échappement \\u incorrect");
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("JSON invalide: échappement \\" + echappe);
+                }
+            }
+            throw new IllegalArgumentException("JSON invalide: chaîne non terminée");
+        }
+    }
+}
@@ -2,10 +2,17 @@ package app;
 
 import models.Utilisateur;
 import models.Message;
-import services.DatabaseManager;
+import models.Statistiques;
 import services.CryptoManager;
+import services.MessagePipeline;
+import services.MessageStore;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 import exceptions.UtilisateurNonTrouveException;
 import exceptions.CryptoException;
@@ -13,22 +20,31 @@ import exceptions.CryptoException;
 public class Main {
     
     // Gestionnaire de base de données
-    private static DatabaseManager dbManager;
+    private static MessageStore dbManager;
     // Gestionnaire de chiffrement/déchiffrement RSA
     private static CryptoManager cryptoManager;
+    // Chaîne d'envoi asynchrone (chiffrement puis insertion en arrière-plan)
+    private static MessagePipeline pipeline;
     // Scanner pour lire les entrées utilisateur
     private static Scanner scanner;
     // Stocke l'utilisateur actuellement connecté
     private static Utilisateur utilisateurCourant;
+    // Nombre de messages affichés par page dans la boîte de réception
+    private static final int TAILLE_PAGE = 20;
+    // Nombre maximal de messages non lus chargés pour le déchiffrement
+    private static final int LIMITE_NON_LUS = 100;
     
     public static void main(String[] args) {
         scanner = new Scanner(System.in);
-        dbManager = new DatabaseManager();
+        dbManager = MessageStore.depuisConfiguration();
         cryptoManager = new CryptoManager();
+        pipeline = new MessagePipeline(cryptoManager, dbManager);
         
         try {            
             // Ouverture de la connexion JDBC
             dbManager.initialiser();
+            // Clés des futurs comptes générées en arrière-plan
+            cryptoManager.preparerCles();
             
             boolean continuer = true;
             while (continuer) {
@@ -68,12 +84,15 @@ public class Main {
             System.err.println("Erreur de connexion à la base de données: " + e.getMessage());
             e.printStackTrace();
         } finally {            
+            // Termine les envois en cours avant de fermer la base
+            pipeline.fermer();
             try {
                 // Fermeture propre de la connexion
                 dbManager.fermer();
             } catch (SQLException e) {
                 System.err.println("Erreur lors de la fermeture: " + e.getMessage());
             }
+            cryptoManager.fermer();
             scanner.close();
         }
     }
@@ -180,10 +199,12 @@ public class Main {
             System.out.println("║         MENU UTILISATEUR              ║");
             System.out.println("╚════════════════════════════════════════╝");
             System.out.println("1. Envoyer un message chiffré");
-            System.out.println("2. Lire mes messages");
-            System.out.println("3. Lister les utilisateurs");
-            System.out.println("4. Statistiques");
-            System.out.println("5. Se déconnecter");
+            System.out.println("2. Envoyer une annonce à tous");
+            System.out.println("3. Lire mes messages");
+            System.out.println("4. Déchiffrer mes messages non lus");
+            System.out.println("5. Lister les utilisateurs");
+            System.out.println("6. Statistiques");
+            System.out.println("7. Se déconnecter");
             System.out.print("\n➤ Votre choix: ");
             
             int choix = lireChoix();
@@ -193,15 +214,21 @@ public class Main {
                     envoyerMessage();
                     break;
                 case 2:
-                    lireMessages();
+                    envoyerAnnonce();
                     break;
                 case 3:
-                    listerUtilisateurs();
+                    lireMessages();
                     break;
                 case 4:
-                    afficherStatistiques();
+                    dechiffrerNonLus();
                     break;
                 case 5:
+                    listerUtilisateurs();
+                    break;
+                case 6:
+                    afficherStatistiques();
+                    break;
+                case 7:
                     // Réinitialise la session
                     utilisateurCourant = null;
                     System.out.println("Déconnexion réussie.");
@@ -220,18 +247,15 @@ public class Main {
         System.out.println("╚════════════════════════════════════════╝");
         
         try {
-            // Liste des utilisateurs SQL
-            ArrayList<Utilisateur> utilisateurs = dbManager.listerUtilisateurs();
-            
-            // Affichage
+            // Affichage des utilisateurs au fil de la lecture
             System.out.println("\nUtilisateurs disponibles:");
-            int compteur = 1;
-            for (Utilisateur u : utilisateurs) {
+            int[] compteur = {1};
+            dbManager.parcourirUtilisateurs(u -> {
                 if (u.getId() != utilisateurCourant.getId()) {
-                    System.out.println("  " + compteur + ". " + u.getNomUtilisateur());
-                    compteur++;
+                    System.out.println("  " + compteur[0] + ". " + u.getNomUtilisateur());
+                    compteur[0]++;
                 }
-            }
+            });
             
             // Nom du destinataire
             System.out.print("\n➤ Nom du destinataire: ");
@@ -257,29 +281,21 @@ public class Main {
                 return;
             }
             
-            // Chiffrement du texte via RSA
-            System.out.println("\nChiffrement du message avec RSA...");
-            String messageChiffre = cryptoManager.chiffrerMessage(nomDestinataire, messageTexte);
-            
-            if (messageChiffre == null) {
-                System.out.println("Erreur lors du chiffrement!");
-                return;
-            }
-            
-            // Création du modèle "Message"
-            Message message = new Message(
+            // Chiffrement RSA et insertion en arrière-plan
+            String nomFinal = destinataire.getNomUtilisateur();
+            pipeline.envoyer(
                 utilisateurCourant.getId(),
                 destinataire.getId(),
-                messageChiffre
-            );
+                nomFinal,
+                messageTexte
+            ).whenComplete((id, erreur) -> {
+                if (erreur != null) {
+                    System.err.println("\nErreur lors de l'envoi du message à " + nomFinal + ": " + erreur.getMessage());
+                }
+            });
             
-            // Envoi vers la base
-            if (dbManager.envoyerMessage(message)) {
-                System.out.println("Message envoyé et chiffré avec succès!");
-                System.out.println("Destinataire: " + destinataire.getNomUtilisateur());
-            } else {
-                System.out.println("Erreur lors de l'envoi du message.");
-            }
+            System.out.println("Message en cours de chiffrement et d'envoi.");
+            System.out.println("Destinataire: " + nomFinal);
             
         } catch (UtilisateurNonTrouveException e) {
             System.out.println(" " + e.getMessage());
@@ -288,105 +304,228 @@ public class Main {
         }
     }
         
-    private static void lireMessages() {
+    private static void envoyerAnnonce() {
         // Interface
         System.out.println("\n╔════════════════════════════════════════╗");
-        System.out.println("║         MES MESSAGES REÇUS            ║");
+        System.out.println("║       ENVOYER UNE ANNONCE             ║");
         System.out.println("╚════════════════════════════════════════╝");
         
-        // Récupère les messages de la BDD
-        ArrayList<Message> messages = dbManager.getMessagesRecus(utilisateurCourant.getId());
+        System.out.print("➤ Annonce: ");
+        String messageTexte = scanner.nextLine();
         
-        if (messages.isEmpty()) {
-            System.out.println("Aucun message.");
+        if (messageTexte.trim().isEmpty()) {
+            System.out.println("Le message ne peut pas être vide!");
             return;
         }
         
-        // Compte les messages non lus
-        int nonLus = 0;
-        for (Message msg : messages) {
-            if (!msg.isLu()) nonLus++;
+        // Tous les utilisateurs sauf l'expéditeur
+        Map<String, Utilisateur> destinataires = new LinkedHashMap<>();
+        for (Utilisateur u : dbManager.listerUtilisateurs()) {
+            if (u.getId() != utilisateurCourant.getId()) {
+                destinataires.put(u.getNomUtilisateur(), u);
+            }
         }
         
-        // Affichage des messages avec indicateurs
-        System.out.println("\nVous avez " + messages.size() + " message(s) (" + nonLus + " non lu(s))\n");
+        if (destinataires.isEmpty()) {
+            System.out.println("Aucun destinataire.");
+            return;
+        }
         
-        for (int i = 0; i < messages.size(); i++) {
-            Message msg = messages.get(i);
-            
-            // Récupération du nom de l'expéditeur
-            String nomExpediteur = "Inconnu";
-            for (Utilisateur u : dbManager.listerUtilisateurs()) {
-                if (u.getId() == msg.getExpediteurId()) {
-                    nomExpediteur = u.getNomUtilisateur();
-                    break;
-                }
-            }
-            
-            // ● = non lu | ✓ = lu
-            String statut = msg.isLu() ? "✓" : "●";
-            System.out.printf("%d. %s De: %s - %s\n", 
-                (i + 1), statut, nomExpediteur, msg.getDateEnvoi());
+        // Chiffrement en parallèle pour chaque destinataire
+        System.out.println("\nChiffrement de l'annonce pour " + destinataires.size() + " destinataire(s)...");
+        Map<String, String> chiffres = cryptoManager.chiffrerPourTous(destinataires.keySet(), messageTexte);
+        
+        // Un seul lot d'insertions
+        List<Message> messages = new ArrayList<>();
+        for (Map.Entry<String, String> chiffre : chiffres.entrySet()) {
+            messages.add(new Message(
+                utilisateurCourant.getId(),
+                destinataires.get(chiffre.getKey()).getId(),
+                chiffre.getValue()
+            ));
         }
         
-        System.out.print("\n➤ Numéro du message à lire (0 pour retour): ");
-        int choix = lireChoix();
+        int envoyes = dbManager.envoyerMessages(messages);
+        System.out.println("Annonce envoyée à " + envoyes + "/" + destinataires.size() + " destinataire(s).");
+    }
+        
+    private static void lireMessages() {
+        // Interface
+        System.out.println("\n╔════════════════════════════════════════╗");
+        System.out.println("║         MES MESSAGES REÇUS            ║");
+        System.out.println("╚════════════════════════════════════════╝");
+        
+        // Position de la page courante (null = première page)
+        Timestamp apresDate = null;
+        int apresId = 0;
+        int page = 1;
         
-        if (choix > 0 && choix <= messages.size()) {
-            Message msg = messages.get(choix - 1);
+        while (true) {
+            // En-têtes de la page, sans le contenu chiffré
+            ArrayList<Message> messages = dbManager.getMessagesRecus(
+                utilisateurCourant.getId(), apresDate, apresId, TAILLE_PAGE);
             
-            try {
-                System.out.println("\nDéchiffrement du message avec votre clé privée...");
+            if (messages.isEmpty()) {
+                System.out.println(page == 1 ? "Aucun message." : "Aucun autre message.");
+                return;
+            }
+            
+            System.out.println("\nPage " + page + "\n");
+            
+            for (int i = 0; i < messages.size(); i++) {
+                Message msg = messages.get(i);
                 
-                // Déchiffrement RSA
-                String messageDechiffre = cryptoManager.dechiffrerMessage(
-                    utilisateurCourant.getNomUtilisateur(),
-                    msg.getContenuChiffre()
-                );
+                // Nom de l'expéditeur (jointure faite par getMessagesRecus)
+                String nomExpediteur = msg.getNomExpediteur() != null ? msg.getNomExpediteur() : "Inconnu";
                 
-                if (messageDechiffre != null) {
-                    // Affichage du texte déchiffré
-                    System.out.println("\n┌─────────────────────────────────────┐");
-                    System.out.println("│  MESSAGE DÉCHIFFRÉ                │");
-                    System.out.println("└─────────────────────────────────────┘");
-                    System.out.println(messageDechiffre);
-                    System.out.println();
-                    
-                    // Passage à "lu" côté BDD
-                    dbManager.marquerCommeLu(msg.getId());
-                } else {
-                    System.out.println("Erreur lors du déchiffrement!");
+                // ● = non lu | ✓ = lu
+                String statut = msg.isLu() ? "✓" : "●";
+                System.out.printf("%d. %s De: %s - %s\n", 
+                    (i + 1), statut, nomExpediteur, msg.getDateEnvoi());
+            }
+            
+            boolean pageSuivante = messages.size() == TAILLE_PAGE;
+            System.out.print("\n➤ Numéro du message à lire (0 pour retour"
+                + (pageSuivante ? ", S pour la page suivante" : "") + ", T pour tout marquer comme lu): ");
+            String saisie = scanner.nextLine().trim();
+            
+            if (saisie.equalsIgnoreCase("T")) {
+                int marques = dbManager.marquerToutCommeLu(utilisateurCourant.getId());
+                if (marques >= 0) {
+                    System.out.println(marques + " message(s) marqué(s) comme lu(s).");
                 }
+                return;
+            }
+            
+            if (pageSuivante && saisie.equalsIgnoreCase("S")) {
+                // La page suivante commence après le dernier message affiché
+                Message dernier = messages.get(messages.size() - 1);
+                apresDate = dernier.getDateEnvoi();
+                apresId = dernier.getId();
+                page++;
+                continue;
+            }
+            
+            int choix;
+            try {
+                choix = Integer.parseInt(saisie);
+            } catch (NumberFormatException e) {
+                choix = -1;
+            }
+            
+            if (choix > 0 && choix <= messages.size()) {
+                ouvrirMessage(messages.get(choix - 1));
+            }
+            return;
+        }
+    }
+    
+    private static void ouvrirMessage(Message msg) {
+        try {
+            // Le contenu chiffré n'est chargé qu'à l'ouverture
+            String contenuChiffre = dbManager.getContenuChiffre(msg.getId(), utilisateurCourant.getId());
+            if (contenuChiffre == null) {
+                System.out.println("Message introuvable!");
+                return;
+            }
+            
+            System.out.println("\nDéchiffrement du message avec votre clé privée...");
+            
+            // Déchiffrement RSA
+            String messageDechiffre = cryptoManager.dechiffrerMessage(
+                utilisateurCourant.getNomUtilisateur(),
+                contenuChiffre
+            );
+            
+            if (messageDechiffre != null) {
+                // Affichage du texte déchiffré
+                System.out.println("\n┌─────────────────────────────────────┐");
+                System.out.println("│  MESSAGE DÉCHIFFRÉ                │");
+                System.out.println("└─────────────────────────────────────┘");
+                System.out.println(messageDechiffre);
+                System.out.println();
                 
-            } catch (Exception e) {
-                System.err.println("Erreur: " + e.getMessage());
+                // Passage à "lu" côté BDD (écriture groupée)
+                dbManager.signalerLecture(msg.getId());
+            } else {
+                System.out.println("Erreur lors du déchiffrement!");
             }
+            
+        } catch (Exception e) {
+            System.err.println("Erreur: " + e.getMessage());
         }
     }
         
-    private static void listerUtilisateurs() {
+    private static void dechiffrerNonLus() {
         // Interface
         System.out.println("\n╔════════════════════════════════════════╗");
-        System.out.println("║     LISTE DES UTILISATEURS            ║");
+        System.out.println("║     DÉCHIFFRER LES NON LUS            ║");
         System.out.println("╚════════════════════════════════════════╝");
         
-        // Récupération SQL
-        ArrayList<Utilisateur> utilisateurs = dbManager.listerUtilisateurs();
+        // Sélection des messages non lus côté base (plus récents d'abord, limités)
+        List<Message> nonLus = dbManager.getMessagesNonLus(utilisateurCourant.getId(), LIMITE_NON_LUS);
         
-        if (utilisateurs.isEmpty()) {
-            System.out.println("Aucun utilisateur.");
+        if (nonLus.isEmpty()) {
+            System.out.println("Aucun message non lu.");
             return;
         }
         
-        System.out.println("\nTotal: " + utilisateurs.size() + " utilisateur(s)\n");
+        // Liste pleine : d'autres messages non lus, plus anciens, restent en base
+        String nombreNonLus = nonLus.size() == LIMITE_NON_LUS ? "Au moins " + LIMITE_NON_LUS : String.valueOf(nonLus.size());
+        System.out.print("\n" + nombreNonLus + " message(s) non lu(s). ➤ Combien en déchiffrer (0 pour tous, " + LIMITE_NON_LUS + " au plus): ");
+        int nombre = lireChoix();
+        if (nombre < 0) {
+            System.out.println("Choix invalide!");
+            return;
+        }
+        if (nombre > 0 && nombre < nonLus.size()) {
+            nonLus = nonLus.subList(0, nombre);
+        }
         
-        // Affichage de chaque utilisateur
-        for (int i = 0; i < utilisateurs.size(); i++) {
-            Utilisateur u = utilisateurs.get(i);
-            
+        System.out.println("\nDéchiffrement en parallèle avec votre clé privée...\n");
+        
+        // Chaque message s'affiche dès qu'il est déchiffré, dans l'ordre de la liste
+        int reussis = cryptoManager.dechiffrerTous(
+            utilisateurCourant.getNomUtilisateur(),
+            nonLus,
+            (msg, messageDechiffre) -> {
+                String nomExpediteur = msg.getNomExpediteur() != null ? msg.getNomExpediteur() : "Inconnu";
+                System.out.println("── De: " + nomExpediteur + " - " + msg.getDateEnvoi());
+                if (messageDechiffre != null) {
+                    System.out.println(messageDechiffre);
+                    // Passage à "lu" côté BDD (écriture groupée)
+                    dbManager.signalerLecture(msg.getId());
+                } else {
+                    System.out.println("Erreur lors du déchiffrement!");
+                }
+                System.out.println();
+            }
+        );
+        
+        System.out.println(reussis + "/" + nonLus.size() + " message(s) déchiffré(s).");
+    }
+        
+    private static void listerUtilisateurs() {
+        // Interface
+        System.out.println("\n╔════════════════════════════════════════╗");
+        System.out.println("║     LISTE DES UTILISATEURS            ║");
+        System.out.println("╚════════════════════════════════════════╝");
+        
+        // Affichage de chaque utilisateur dès sa lecture (aucune liste complète en mémoire)
+        System.out.println();
+        int[] rang = {0};
+        int total = dbManager.parcourirUtilisateurs(u -> {
+            rang[0]++;
+
             // Marque l'utilisateur courant
             String marqueur = u.getId() == utilisateurCourant.getId() ? " (vous)" : "";
-            System.out.println((i + 1) + ". " + u.getNomUtilisateur() + marqueur);
+            System.out.println(rang[0] + ". " + u.getNomUtilisateur() + marqueur);
+        });
+        
+        if (total == 0) {
+            System.out.println("Aucun utilisateur.");
+        } else if (total > 0) {
+            System.out.println("\nTotal: " + total + " utilisateur(s)");
         }
     }
         
@@ -395,29 +534,50 @@ public class Main {
         System.out.println("║         STATISTIQUES                  ║");
         System.out.println("╚════════════════════════════════════════╝");
         
-        // Récupère les messages pour calcul des stats
-        ArrayList<Message> messagesRecus = dbManager.getMessagesRecus(utilisateurCourant.getId());
-                
-        int totalRecus = messagesRecus.size();
-        int lus = 0;
-        int nonLus = 0;
-        
-        // Comptage des états
-        for (Message msg : messagesRecus) {
-            if (msg.isLu()) lus++;
-            else nonLus++;
+        // Agrégats calculés par la base
+        Statistiques stats = dbManager.getStatistiques(utilisateurCourant.getId());
+        if (stats == null) {
+            System.out.println("Statistiques indisponibles.");
+            return;
         }
         
         // Affichage global
         System.out.println("\nVos statistiques:");
-        System.out.println("  • Messages reçus: " + totalRecus);
-        System.out.println("  • Messages lus: " + lus);
-        System.out.println("  • Messages non lus: " + nonLus);
+        System.out.println("  • Messages reçus: " + stats.getMessagesRecus());
+        System.out.println("  • Messages lus: " + stats.getMessagesLus());
+        System.out.println("  • Messages non lus: " + stats.getMessagesNonLus());
+        System.out.println("  • Messages envoyés: " + stats.getMessagesEnvoyes());
         
         // Calcul du taux de lecture
-        if (totalRecus > 0) {
-            double tauxLecture = (lus * 100.0) / totalRecus;
-            System.out.printf("  • Taux de lecture: %.1f%%\n", tauxLecture);
+        if (stats.getMessagesRecus() > 0) {
+            System.out.printf("  • Taux de lecture: %.1f%%\n", stats.getTauxLecture());
+        }
+        
+        // Principaux correspondants
+        if (!stats.getCorrespondants().isEmpty()) {
+            System.out.println("\nPrincipaux correspondants:");
+            for (Map.Entry<String, Integer> c : stats.getCorrespondants().entrySet()) {
+                System.out.println("  • " + c.getKey() + ": " + c.getValue() + " message(s)");
+            }
+        }
+        
+        // Chaîne d'envoi de la session
+        if (pipeline.getMetriques().get(0).getNombre() > 0) {
+            System.out.println("\nChaîne d'envoi (session):");
+            for (MessagePipeline.Metrique metrique : pipeline.getMetriques()) {
+                System.out.println("  • " + metrique);
+            }
+        }
+        if (cryptoManager.getFabriqueCles() != null) {
+            System.out.println("\n" + cryptoManager.getFabriqueCles());
+        }
+        
+        // Volume récent
+        if (!stats.getVolumeParJour().isEmpty()) {
+            System.out.println("\nMessages reçus par jour (7 derniers jours):");
+            for (Map.Entry<LocalDate, Integer> jour : stats.getVolumeParJour().entrySet()) {
+                System.out.println("  • " + jour.getKey() + ": " + jour.getValue());
+            }
         }
     }
         
@@ -0,0 +1,384 @@
+package app;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import models.Message;
+import models.Statistiques;
+import models.Utilisateur;
+import services.CryptoManager;
+import services.MessagePipeline;
+import services.MessageStore;
+import services.crypto.ClesEnAttente;
+
+/**
+ * Mode serveur sans interface : la messagerie est exposée sur un port TCP local
+ * Protocole : une requête JSON par ligne, une réponse JSON par ligne
+ *   {"op":"creer","nom":"alice"}                           → {"ok":true,"id":3}
+ *   {"op":"envoyer","de":"alice","a":"bob","texte":"..."}  → {"ok":true,"id":42}
+ *   {"op":"boite","nom":"bob","limite":20}                 → {"ok":true,"messages":[...],"suivant":{...}}
+ *   {"op":"lire","nom":"bob","id":42}                      → {"ok":true,"texte":"..."}
+ *   {"op":"stats","nom":"bob"}                             → {"ok":true,"recus":...}
+ * En cas d'erreur : {"ok":false,"erreur":"..."}
+ * Chaque client est servi par son propre thread ; tous partagent le pool JDBC et le moteur de chiffrement
+ *
+ * Usage : java -cp "bin:lib/mysql-connector-j-8.4.0.jar" app.Serveur [port]
+ */
+public class Serveur {
+    public static final int PORT_DEFAUT = 5050;
+    // Taille de page maximale de la requête "boite"
+    private static final int LIMITE_MAX = 100;
+    // Attente maximale de l'insertion d'un message envoyé
+    private static final long DELAI_ENVOI_S = 30;
+
+    private final MessageStore dbManager;
+    private final CryptoManager cryptoManager;
+    private final MessagePipeline pipeline;
+    private final ExecutorService clients;
+    private ServerSocket socketServeur;
+    private volatile boolean actif;
+
+    public Serveur(MessageStore dbManager, CryptoManager cryptoManager, MessagePipeline pipeline) {
+        this.dbManager = dbManager;
+        this.cryptoManager = cryptoManager;
+        this.pipeline = pipeline;
+        // Threads créés à la demande (pas de threads virtuels en Java 17)
+        this.clients = Executors.newCachedThreadPool(tache -> {
+            Thread thread = new Thread(tache, "serveur-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void main(String[] args) {
+        int port = PORT_DEFAUT;
+        if (args.length > 0) {
+            try {
+                port = Integer.parseInt(args[0]);
+            } catch (NumberFormatException e) {
+                port = -1;
+            }
+            if (port < 0 || port > 65535) {
+                System.err.println("Port invalide: " + args[0]);
+                System.err.println("Usage : java -cp \"bin:lib/mysql-connector-j-8.4.0.jar\" app.Serveur [port]");
+                System.exit(1);
+            }
+        }
+
+        MessageStore dbManager = MessageStore.depuisConfiguration();
+        CryptoManager cryptoManager = new CryptoManager();
+        MessagePipeline pipeline = new MessagePipeline(cryptoManager, dbManager);
+        Serveur serveur = new Serveur(dbManager, cryptoManager, pipeline);
+
+        try {
+            dbManager.initialiser();
+            cryptoManager.preparerCles();
+            // Ctrl+C : arrêt de l'écoute, puis attente du nettoyage fait par main (finally)
+            Thread principal = Thread.currentThread();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                serveur.arreter();
+                try {
+                    principal.join(TimeUnit.MINUTES.toMillis(1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "arret-serveur"));
+            serveur.demarrer(port);
+        } catch (SQLException e) {
+            System.err.println("Erreur de connexion à la base de données: " + e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Erreur du serveur: " + e.getMessage());
+        } finally {
+            serveur.arreter();
+            pipeline.fermer();
+            try {
+                dbManager.fermer();
+            } catch (SQLException e) {
+                System.err.println("Erreur lors de la fermeture: " + e.getMessage());
+            }
+            cryptoManager.fermer();
+        }
+    }
+
+    /**
+     * Écoute sur localhost et sert les clients jusqu'à l'arrêt
+     */
+    public void demarrer(int port) throws IOException {
+        socketServeur = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        actif = true;
+        System.out.println("Serveur de messagerie à l'écoute sur " + socketServeur.getLocalSocketAddress());
+
+        while (actif) {
+            Socket client;
+            try {
+                client = socketServeur.accept();
+            } catch (SocketException e) {
+                // Socket fermée par arreter()
+                break;
+            }
+            clients.execute(() -> servir(client));
+        }
+    }
+
+    /**
+     * Ferme la socket d'écoute et les connexions clientes
+     */
+    public synchronized void arreter() {
+        if (!actif) {
+            return;
+        }
+        actif = false;
+        try {
+            socketServeur.close();
+        } catch (IOException e) {
+            System.err.println("Erreur lors de la fermeture du serveur: " + e.getMessage());
+        }
+        clients.shutdownNow();
+    }
+
+    /**
+     * Dialogue avec un client : une réponse par ligne reçue, jusqu'à la déconnexion
+     */
+    private void servir(Socket client) {
+        try (Socket socket = client;
+             BufferedReader entree = new BufferedReader(
+                 new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter sortie = new PrintWriter(
+                 new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+
+            String ligne;
+            while ((ligne = entree.readLine()) != null) {
+                if (ligne.isBlank()) {
+                    continue;
+                }
+                sortie.println(JsonLigne.ecrire(repondre(ligne)));
+                sortie.flush();
+            }
+        } catch (IOException e) {
+            // Client déconnecté
+        }
+    }
+
+    /**
+     * Traite une requête et construit sa réponse (jamais d'exception vers le client)
+     */
+    Map<String, Object> repondre(String ligne) {
+        try {
+            Map<String, Object> requete = JsonLigne.lireObjet(ligne);
+            String operation = chaine(requete, "op");
+            switch (operation) {
+                case "creer":
+                    return creer(chaine(requete, "nom"));
+                case "envoyer":
+                    return envoyer(chaine(requete, "de"), chaine(requete, "a"), chaine(requete, "texte"));
+                case "boite":
+                    return boite(chaine(requete, "nom"), (String) requete.get("apresDate"),
+                        entier(requete, "apresId", 0), entier(requete, "limite", 20));
+                case "lire":
+                    return lire(chaine(requete, "nom"), entier(requete, "id", -1));
+                case "stats":
+                    return stats(chaine(requete, "nom"));
+                case "ping":
+                    return succes();
+                default:
+                    return erreur("Opération inconnue: " + operation);
+            }
+        } catch (IllegalArgumentException | ClassCastException e) {
+            return erreur(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return erreur("Serveur en cours d'arrêt");
+        } catch (Exception e) {
+            return erreur("Erreur interne: " + e.getMessage());
+        }
+    }
+
+    private Map<String, Object> creer(String nomUtilisateur) {
+        if (nomUtilisateur.isBlank()) {
+            return erreur("Le nom ne peut pas être vide");
+        }
+        if (dbManager.getUtilisateur(nomUtilisateur) != null) {
+            return erreur("Cet utilisateur existe déjà");
+        }
+        // Clés écrites dans des fichiers provisoires : deux créations simultanées du même nom passent
+        // la vérification ci-dessus, mais seule celle dont l'insertion réussit (index unique) les met en place
+        ClesEnAttente cles = cryptoManager.genererClesEnAttente(nomUtilisateur);
+        if (cles == null) {
+            return erreur("Erreur lors de la génération des clés");
+        }
+
+        Utilisateur utilisateur = new Utilisateur(nomUtilisateur,
+            cryptoManager.getCheminClePublique(nomUtilisateur),
+            cryptoManager.getCheminClePrivee(nomUtilisateur));
+        if (!dbManager.ajouterUtilisateur(utilisateur)) {
+            cles.abandonner();
+            return erreur(dbManager.getUtilisateur(nomUtilisateur) != null
+                ? "Cet utilisateur existe déjà"
+                : "Erreur lors de la création du compte");
+        }
+        // Simple renommage dans le répertoire des clés : l'écriture elle-même a déjà réussi
+        if (!cryptoManager.installerCles(cles)) {
+            return erreur("Erreur lors de l'enregistrement des clés");
+        }
+
+        Utilisateur cree = dbManager.getUtilisateur(nomUtilisateur);
+        Map<String, Object> reponse = succes();
+        reponse.put("id", cree != null ? cree.getId() : null);
+        return reponse;
+    }
+
+    private Map<String, Object> envoyer(String nomExpediteur, String nomDestinataire, String texte)
+            throws InterruptedException {
+        if (texte.isBlank()) {
+            return erreur("Le message ne peut pas être vide");
+        }
+        Utilisateur expediteur = dbManager.getUtilisateur(nomExpediteur);
+        Utilisateur destinataire = dbManager.getUtilisateur(nomDestinataire);
+        if (expediteur == null || destinataire == null) {
+            return erreur("Utilisateur introuvable: " + (expediteur == null ? nomExpediteur : nomDestinataire));
+        }
+        if (expediteur.getId() == destinataire.getId()) {
+            return erreur("Impossible de s'envoyer un message");
+        }
+
+        try {
+            int id = pipeline.envoyer(expediteur.getId(), destinataire.getId(), destinataire.getNomUtilisateur(), texte)
+                .get(DELAI_ENVOI_S, TimeUnit.SECONDS);
+            Map<String, Object> reponse = succes();
+            reponse.put("id", id);
+            return reponse;
+        } catch (ExecutionException e) {
+            return erreur(e.getCause().getMessage());
+        } catch (TimeoutException e) {
+            return erreur("Envoi non confirmé après " + DELAI_ENVOI_S + " s");
+        }
+    }
+
+    private Map<String, Object> boite(String nomUtilisateur, String apresDate, int apresId, int limite) {
+        Utilisateur utilisateur = dbManager.getUtilisateur(nomUtilisateur);
+        if (utilisateur == null) {
+            return erreur("Utilisateur introuvable: " + nomUtilisateur);
+        }
+        limite = Math.max(1, Math.min(limite, LIMITE_MAX));
+        Timestamp apres = apresDate != null ? Timestamp.valueOf(apresDate) : null;
+
+        List<Object> entetes = new ArrayList<>();
+        List<Message> messages = dbManager.getMessagesRecus(utilisateur.getId(), apres, apresId, limite);
+        for (Message msg : messages) {
+            Map<String, Object> entete = new LinkedHashMap<>();
+            entete.put("id", msg.getId());
+            entete.put("de", msg.getNomExpediteur());
+            entete.put("date", String.valueOf(msg.getDateEnvoi()));
+            entete.put("lu", msg.isLu());
+            entetes.add(entete);
+        }
+
+        Map<String, Object> reponse = succes();
+        reponse.put("messages", entetes);
+        if (messages.size() == limite) {
+            // Position à renvoyer pour obtenir la page suivante
+            Message dernier = messages.get(messages.size() - 1);
+            Map<String, Object> suivant = new LinkedHashMap<>();
+            suivant.put("apresDate", String.valueOf(dernier.getDateEnvoi()));
+            suivant.put("apresId", dernier.getId());
+            reponse.put("suivant", suivant);
+        }
+        return reponse;
+    }
+
+    private Map<String, Object> lire(String nomUtilisateur, int messageId) {
+        Utilisateur utilisateur = dbManager.getUtilisateur(nomUtilisateur);
+        if (utilisateur == null) {
+            return erreur("Utilisateur introuvable: " + nomUtilisateur);
+        }
+        String contenuChiffre = dbManager.getContenuChiffre(messageId, utilisateur.getId());
+        if (contenuChiffre == null) {
+            return erreur("Message introuvable: " + messageId);
+        }
+        String texte = cryptoManager.dechiffrerMessage(utilisateur.getNomUtilisateur(), contenuChiffre);
+        if (texte == null) {
+            return erreur("Erreur lors du déchiffrement");
+        }
+        dbManager.signalerLecture(messageId);
+
+        Map<String, Object> reponse = succes();
+        reponse.put("texte", texte);
+        return reponse;
+    }
+
+    private Map<String, Object> stats(String nomUtilisateur) {
+        Utilisateur utilisateur = dbManager.getUtilisateur(nomUtilisateur);
+        if (utilisateur == null) {
+            return erreur("Utilisateur introuvable: " + nomUtilisateur);
+        }
+        Statistiques statistiques = dbManager.getStatistiques(utilisateur.getId());
+        if (statistiques == null) {
+            return erreur("Statistiques indisponibles");
+        }
+
+        Map<String, Object> volume = new LinkedHashMap<>();
+        statistiques.getVolumeParJour().forEach((jour, nombre) -> volume.put(jour.toString(), nombre));
+
+        Map<String, Object> reponse = succes();
+        reponse.put("recus", statistiques.getMessagesRecus());
+        reponse.put("lus", statistiques.getMessagesLus());
+        reponse.put("nonLus", statistiques.getMessagesNonLus());
+        reponse.put("envoyes", statistiques.getMessagesEnvoyes());
+        reponse.put("correspondants", new LinkedHashMap<>(statistiques.getCorrespondants()));
+        reponse.put("volumeParJour", volume);
+        return reponse;
+    }
+
+    // OUTILS
+
+    private static String chaine(Map<String, Object> requete, String cle) {
+        Object valeur = requete.get(cle);
+        if (!(valeur instanceof String)) {
+            throw new IllegalArgumentException("Champ texte \"" + cle + "\" manquant");
+        }
+        return (String) valeur;
+    }
+
+    private static int entier(Map<String, Object> requete, String cle, int defaut) {
+        Object valeur = requete.get(cle);
+        if (valeur == null) {
+            return defaut;
+        }
+        if (!(valeur instanceof Long)) {
+            throw new IllegalArgumentException("Champ entier \"" + cle + "\" invalide");
+        }
+        return Math.toIntExact((Long) valeur);
+    }
+
+    private static Map<String, Object> succes() {
+        Map<String, Object> reponse = new LinkedHashMap<>();
+        reponse.put("ok", true);
+        return reponse;
+    }
+
+    private static Map<String, Object> erreur(String message) {
+        Map<String, Object> reponse = new LinkedHashMap<>();
+        reponse.put("ok", false);
+        reponse.put("erreur", message);
+        return reponse;
+    }
+}
@@ -1,4 +1,24 @@
+// open_memstream (mode serveur)
+#define _POSIX_C_SOURCE 200809L
+
 #include "crypto.h"
+#include <stdint.h>
+#include <errno.h>
+#include <limits.h>
+#include <sys/stat.h>
+#include <unistd.h>
+
+// Flux des messages d'état (stderr en mode serveur, stdout protégé par le protocole)
+static FILE *sortie_etat = NULL;
+
+// Indique si le générateur aléatoire a déjà été initialisé
+static bool graine_initialisee = false;
+// Vrai dans la boucle de servir(): messages de succès omis
+static bool mode_serveur = false;
+
+static FILE *flux_etat(void) {
+    return sortie_etat ? sortie_etat : stdout;
+}
 
 int pgcd(int a, int b) {    
     while (b != 0) {
@@ -40,18 +60,36 @@ int inverse_modulaire(int e, int phi) {
 bool estPremier(int n) {
     // Cas particuliers
     if (n < 2) return false;              // 0, 1 et négatifs ne sont pas premiers
-    if (n <= 3) return true;              // 2 et 3 sont premiers
     
-    // Tout nombre divisible par 2 ou 3 n'est pas premier
-    if (n % 2 == 0 || n % 3 == 0) return false;
+    // Test de Miller-Rabin avec les bases 2, 7 et 61 : déterministe pour n < 4 759 123 141,
+    // donc pour tout int (les produits de exp_modulaire tiennent dans un long long)
+    static const int bases[] = { 2, 7, 61 };
+    for (int i = 0; i < 3; i++) {
+        if (n == bases[i]) return true;
+        if (n % bases[i] == 0) return false;
+    }
+    
+    // n - 1 = 2^s * d avec d impair
+    long long d = n - 1;
+    int s = 0;
+    while (d % 2 == 0) {
+        d /= 2;
+        s++;
+    }
     
-    // Test pour tous les nombres de la forme 6k±1 jusqu'à √n
-    // Car tout premier > 3 est de la forme 6k±1
-    for (int i = 5; i * i < n; i += 6) {
-        if (n % i == 0 || n % (i + 2) == 0) return false;
+    for (int i = 0; i < 3; i++) {
+        long long x = exp_modulaire(bases[i], d, n);
+        if (x == 1 || x == n - 1) continue;
+        
+        bool temoin = true;               // La base prouve-t-elle que n est composé ?
+        for (int r = 1; r < s && temoin; r++) {
+            x = (x * x) % n;
+            if (x == n - 1) temoin = false;
+        }
+        if (temoin) return false;
     }
     
-    return true;  // Si aucun diviseur trouvé, n est premier
+    return true;  // Aucune base n'a trouvé de témoin : n est premier
 }
 
 int generer_premier(int min, int max) {
@@ -77,6 +115,22 @@ long long exp_modulaire(long long base, long long exp, long long mod) {
     return resultat;
 }
 
+long long exp_privee(CleRSA *cle, long long c) {
+    if (cle->qinv <= 0) {
+        return exp_modulaire(c, cle->e, cle->n);
+    }
+    
+    // Deux exponentiations sur des modules deux fois plus courts (exposants dp et dq)
+    long long m1 = exp_modulaire(c, cle->dp, cle->p);
+    long long m2 = exp_modulaire(c, cle->dq, cle->q);
+    
+    // Recombinaison de Garner : m = m2 + q * (qinv * (m1 - m2) mod p)
+    long long h = (m1 - m2) % cle->p;
+    if (h < 0) h += cle->p;
+    h = (cle->qinv * h) % cle->p;
+    return m2 + h * cle->q;
+}
+
 // FONCTION POUR CREER UNE STRUCTURE CLE COMPLETE
 CleRSA *creer_cle(int n, int e, int p, int q, int phi, bool est_publique) {
     CleRSA *cle = (CleRSA*) malloc(sizeof(CleRSA));
@@ -89,6 +143,9 @@ CleRSA *creer_cle(int n, int e, int p, int q, int phi, bool est_publique) {
     cle->p = p;
     cle->q = q;
     cle->phi = phi;
+    cle->dp = 0;
+    cle->dq = 0;
+    cle->qinv = 0;
     cle->est_publique = est_publique;
     return cle;
 }
@@ -121,8 +178,13 @@ void liberer_cle(CleRSA *cle) {
     }
 }
 
-void generer_cles(const char *fichier_publique, const char *fichier_prive) {
-    srand((unsigned)time(NULL));
+bool generer_cles(const char *fichier_publique, const char *fichier_prive) {
+    // Une seule initialisation par processus: un serveur peut générer plusieurs paires
+    // dans la même seconde, et plusieurs serveurs démarrent en même temps
+    if (!graine_initialisee) {
+        srand((unsigned)time(NULL) ^ (unsigned)getpid());
+        graine_initialisee = true;
+    }
 
     int p = generer_premier(50, 150);
     int q = generer_premier(150, 250);
@@ -138,7 +200,7 @@ void generer_cles(const char *fichier_publique, const char *fichier_prive) {
 
     if (d == -1) {
         fprintf(stderr, "Erreur, impossible de calculer d\n");
-        return;
+        return false;
     }
 
     // CREER LA STRUCTURE DE CLE PUBLIQUE
@@ -146,7 +208,7 @@ void generer_cles(const char *fichier_publique, const char *fichier_prive) {
     if (!cle_pub || !valider_cle(cle_pub)) {
         fprintf(stderr, "Erreur validation cle publique\n");
         liberer_cle(cle_pub);
-        return;
+        return false;
     }
 
     // CREER LA STRUCTURE DE CLE PRIVEE
@@ -155,8 +217,13 @@ void generer_cles(const char *fichier_publique, const char *fichier_prive) {
         fprintf(stderr, "Erreur validation cle privee\n");
         liberer_cle(cle_pub);
         liberer_cle(cle_priv);
-        return;
+        return false;
     }
+    
+    // PARAMETRES DES RESTES CHINOIS, enregistrés avec la clé privée
+    cle_priv->dp = d % (p - 1);
+    cle_priv->dq = d % (q - 1);
+    cle_priv->qinv = inverse_modulaire(q % p, p);
 
     // ENREGISTER LA CLE PUBLIQUE
     FILE *fp = fopen(fichier_publique, "w");
@@ -164,7 +231,7 @@ void generer_cles(const char *fichier_publique, const char *fichier_prive) {
         perror("Erreur d'ouverture du fichier cle publique");
         liberer_cle(cle_pub);
         liberer_cle(cle_priv);
-        return;
+        return false;
     }
     fprintf(fp, "%d\n%d\n", cle_pub->n, cle_pub->e);
     fclose(fp);
@@ -175,16 +242,59 @@ void generer_cles(const char *fichier_publique, const char *fichier_prive) {
         perror("Erreur d'ouverture du fichier cle privee");
         liberer_cle(cle_pub);
         liberer_cle(cle_priv);
-        return;
+        return false;
     }
-    fprintf(fp, "%d\n%d\n", cle_priv->n, cle_priv->e);
+    fprintf(fp, "%d\n%d\n%d\n%d\n%d\n%d\n%d\n", cle_priv->n, cle_priv->e,
+            cle_priv->p, cle_priv->q, cle_priv->dp, cle_priv->dq, cle_priv->qinv);
     fclose(fp);
 
-    printf("Cles generees avec succes\n");
-    printf("n = %d, e = %d, d = %d\n", cle_pub->n, cle_pub->e, cle_priv->e);
+    // En mode serveur, le succès est transmis dans la réponse (génération possible en arrière-plan)
+    if (!mode_serveur) {
+        fprintf(flux_etat(), "Cles generees avec succes\n");
+        fprintf(flux_etat(), "n = %d, e = %d, d = %d\n", cle_pub->n, cle_pub->e, cle_priv->e);
+    }
 
     liberer_cle(cle_pub);
     liberer_cle(cle_priv);
+    return true;
+}
+
+bool est_flux_standard(const char *fichier) {
+    return strcmp(fichier, "-") == 0;
+}
+
+FILE *ouvrir_flux(const char *fichier, const char *mode) {
+    // "-" désigne l'entrée ou la sortie standard (aucun fichier temporaire)
+    if (est_flux_standard(fichier)) {
+        return mode[0] == 'r' ? stdin : stdout;
+    }
+    return fopen(fichier, mode);
+}
+
+void fermer_flux(FILE *flux) {
+    if (flux == stdin) return;
+    if (flux == stdout) {
+        fflush(stdout);
+        return;
+    }
+    fclose(flux);
+}
+
+// Lit au plus max entiers décimaux ; -1 si une valeur n'est pas un entier de 0 à INT_MAX
+// (fscanf("%d") tronquerait silencieusement les grandes valeurs)
+static int lire_valeurs_cle(FILE *fp, int *valeurs, int max) {
+    char texte[32];
+    int lues = 0;
+    while (lues < max && fscanf(fp, "%31s", texte) == 1) {
+        char *fin;
+        errno = 0;
+        long long valeur = strtoll(texte, &fin, 10);
+        if (fin == texte || *fin != '\0' || errno == ERANGE || valeur < 0 || valeur > INT_MAX) {
+            return -1;
+        }
+        valeurs[lues++] = (int) valeur;
+    }
+    return lues;
 }
 
 CleRSA *lire_cle(const char *fichier) {
@@ -194,102 +304,528 @@ CleRSA *lire_cle(const char *fichier) {
         return NULL;
     }
 
-    int n, e;
-    if (fscanf(fp, "%d\n%d\n", &n, &e) != 2) {
+    // n, e puis, pour une clé privée récente, p, q, dp, dq et qinv
+    int valeurs[7];
+    int lues = lire_valeurs_cle(fp, valeurs, 7);
+    fclose(fp);
+
+    if (lues < 0) {
+        // Clé de taille réelle (ex: 2048 bits, moteur Java) : hors de portée de l'arithmétique int
+        fprintf(stderr, "Erreur: cle trop grande pour le module C: %s\n", fichier);
+        return NULL;
+    }
+    if (lues < 2 || valeurs[0] < 2) {
         fprintf(stderr, "Erreur lecture cle\n");
-        fclose(fp);
         return NULL;
     }
-    fclose(fp);
 
-    // CREER UNE STRUCTURE CLE (sans p, q, phi car non stockés dans le fichier)
-    CleRSA *cle = creer_cle(n, e, 0, 0, 0, true);
+    // CREER UNE STRUCTURE CLE (phi n'est pas stocké dans le fichier)
+    int n = valeurs[0];
+    CleRSA *cle = creer_cle(n, valeurs[1], 0, 0, 0, true);
+    if (cle && lues == 7) {
+        int p = valeurs[2], q = valeurs[3];
+        if (p > 1 && q > 1 && (long long) p * q == n && valeurs[6] > 0) {
+            cle->p = p;
+            cle->q = q;
+            cle->dp = valeurs[4];
+            cle->dq = valeurs[5];
+            cle->qinv = valeurs[6];
+        }
+    }
     return cle;
 }
 
-void chiffrer_avec_cle(CleRSA *cle, const char *message, const char *fichier_sortie) {
-    if (!cle) {
-        fprintf(stderr, "Erreur: cle nulle\n");
-        return;
+/* ===== FORMAT PAR BLOCS ===== */
+
+static const char ALPHABET_BASE64[] =
+    "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+
+char *encoder_base64(const unsigned char *donnees, size_t longueur) {
+    char *texte = (char*) malloc(4 * ((longueur + 2) / 3) + 1);
+    if (!texte) return NULL;
+
+    size_t j = 0;
+    for (size_t i = 0; i < longueur; i += 3) {
+        uint32_t groupe = (uint32_t) donnees[i] << 16;
+        if (i + 1 < longueur) groupe |= (uint32_t) donnees[i + 1] << 8;
+        if (i + 2 < longueur) groupe |= donnees[i + 2];
+
+        texte[j++] = ALPHABET_BASE64[(groupe >> 18) & 0x3F];
+        texte[j++] = ALPHABET_BASE64[(groupe >> 12) & 0x3F];
+        texte[j++] = i + 1 < longueur ? ALPHABET_BASE64[(groupe >> 6) & 0x3F] : '=';
+        texte[j++] = i + 2 < longueur ? ALPHABET_BASE64[groupe & 0x3F] : '=';
     }
+    texte[j] = '\0';
+    return texte;
+}
 
-    FILE *fout = fopen(fichier_sortie, "w");
-    if (!fout) {
-        perror("Erreur d'ouverture du fichier de sortie");
-        return;
+static int valeur_base64(char c) {
+    if (c >= 'A' && c <= 'Z') return c - 'A';
+    if (c >= 'a' && c <= 'z') return c - 'a' + 26;
+    if (c >= '0' && c <= '9') return c - '0' + 52;
+    if (c == '+') return 62;
+    if (c == '/') return 63;
+    return -1;
+}
+
+unsigned char *decoder_base64(const char *texte, size_t longueur, size_t *taille) {
+    unsigned char *donnees = (unsigned char*) malloc(longueur / 4 * 3 + 3);
+    if (!donnees) return NULL;
+
+    uint32_t groupe = 0;
+    int bits = 0;
+    size_t j = 0;
+    for (size_t i = 0; i < longueur; i++) {
+        char c = texte[i];
+        // Les espaces et fins de ligne éventuels (fichier) sont ignorés, le remplissage termine
+        if (c == ' ' || c == '\n' || c == '\r' || c == '\t') continue;
+        if (c == '=') break;
+
+        int valeur = valeur_base64(c);
+        if (valeur < 0) {
+            free(donnees);
+            return NULL;
+        }
+        groupe = (groupe << 6) | (uint32_t) valeur;
+        bits += 6;
+        if (bits >= 8) {
+            bits -= 8;
+            donnees[j++] = (unsigned char) (groupe >> bits);
+        }
     }
 
+    *taille = j;
+    return donnees;
+}
+
+int bits_module(CleRSA *cle) {
+    int bits = 0;
+    for (long long n = cle->n; n > 0; n >>= 1) bits++;
+    return bits;
+}
+
+void ecrire_chiffre_historique(CleRSA *cle, const char *message, FILE *fout) {
     int len = strlen(message);
     for (int i = 0; i < len; i++) {
         int c = (int) message[i];
         long long chiffre = exp_modulaire(c, cle->e, cle->n);
         fprintf(fout, "%lld ", chiffre);
     }
+}
 
-    fclose(fout);
-    printf("Message chiffre avec succes\n");
+void ecrire_chiffre(CleRSA *cle, const char *message, FILE *fout) {
+    // Octets de message par bloc (bloc < n) et taille fixe d'un bloc chiffré
+    int octets_bloc = (bits_module(cle) - 1) / 8;
+    int octets_chiffre = (bits_module(cle) + 7) / 8;
+    if (octets_bloc < 1) {
+        ecrire_chiffre_historique(cle, message, fout);
+        return;
+    }
+
+    size_t len = strlen(message);
+    size_t nombre_blocs = (len + octets_bloc - 1) / octets_bloc;
+    size_t taille = 4 + nombre_blocs * octets_chiffre;
+    unsigned char *donnees = (unsigned char*) malloc(taille);
+    if (!donnees) {
+        perror("Erreur d'allocation memoire");
+        return;
+    }
+
+    // Longueur du message en big-endian
+    donnees[0] = (unsigned char) (len >> 24);
+    donnees[1] = (unsigned char) (len >> 16);
+    donnees[2] = (unsigned char) (len >> 8);
+    donnees[3] = (unsigned char) len;
+
+    size_t position = 4;
+    for (size_t debut = 0; debut < len; debut += octets_bloc) {
+        long long bloc = 0;
+        for (size_t i = debut; i < debut + octets_bloc && i < len; i++) {
+            bloc = (bloc << 8) | (unsigned char) message[i];
+        }
+        long long chiffre = exp_modulaire(bloc, cle->e, cle->n);
+        for (int i = octets_chiffre - 1; i >= 0; i--) {
+            donnees[position++] = (unsigned char) (chiffre >> (8 * i));
+        }
+    }
+
+    char *texte = encoder_base64(donnees, taille);
+    free(donnees);
+    if (!texte) {
+        perror("Erreur d'allocation memoire");
+        return;
+    }
+    fprintf(fout, "%s%s", ENTETE_BLOCS, texte);
+    free(texte);
+}
+
+static bool dechiffrer_blocs(CleRSA *cle, const char *texte, size_t longueur, FILE *fout) {
+    size_t taille;
+    unsigned char *donnees = decoder_base64(texte, longueur, &taille);
+    if (!donnees) {
+        fprintf(stderr, "Erreur: contenu chiffre invalide (base64)\n");
+        return false;
+    }
+
+    int octets_bloc = (bits_module(cle) - 1) / 8;
+    int octets_chiffre = (bits_module(cle) + 7) / 8;
+    if (taille < 4 || octets_bloc < 1) {
+        fprintf(stderr, "Erreur: contenu chiffre invalide ou cle inadaptee\n");
+        free(donnees);
+        return false;
+    }
+
+    size_t len = ((size_t) donnees[0] << 24) | ((size_t) donnees[1] << 16)
+               | ((size_t) donnees[2] << 8) | (size_t) donnees[3];
+    size_t nombre_blocs = (len + octets_bloc - 1) / octets_bloc;
+    if (taille != 4 + nombre_blocs * octets_chiffre) {
+        fprintf(stderr, "Erreur: contenu chiffre tronque ou cle inadaptee\n");
+        free(donnees);
+        return false;
+    }
+
+    size_t position = 4;
+    for (size_t debut = 0; debut < len; debut += octets_bloc) {
+        long long valeur = 0;
+        for (int i = 0; i < octets_chiffre; i++) {
+            valeur = (valeur << 8) | donnees[position++];
+        }
+        long long bloc = exp_privee(cle, valeur);
+
+        int taille_bloc = len - debut < (size_t) octets_bloc ? (int) (len - debut) : octets_bloc;
+        for (int i = taille_bloc - 1; i >= 0; i--) {
+            fputc((int) ((bloc >> (8 * i)) & 0xFF), fout);
+        }
+    }
+
+    free(donnees);
+    return true;
+}
+
+static void dechiffrer_historique(CleRSA *cle, const char *texte, FILE *fout) {
+    // Même lecture que fscanf("%lld"): arrêt au premier élément invalide
+    const char *position = texte;
+    while (true) {
+        char *suite;
+        long long chiffre = strtoll(position, &suite, 10);
+        if (suite == position) break;
+        long long dechiffre = exp_modulaire(chiffre, cle->e, cle->n);
+        fprintf(fout, "%c", (char) dechiffre);
+        position = suite;
+    }
+}
+
+bool dechiffrer_contenu(CleRSA *cle, const char *contenu, FILE *fout) {
+    size_t longueur_entete = strlen(ENTETE_BLOCS);
+    if (strncmp(contenu, ENTETE_BLOCS, longueur_entete) == 0) {
+        return dechiffrer_blocs(cle, contenu + longueur_entete, strlen(contenu) - longueur_entete, fout);
+    }
+    dechiffrer_historique(cle, contenu, fout);
+    return true;
+}
+
+char *lire_tout(FILE *fin) {
+    size_t capacite = 4096, taille = 0, lus;
+    char *contenu = (char*) malloc(capacite + 1);
+    if (!contenu) return NULL;
+
+    while ((lus = fread(contenu + taille, 1, capacite - taille, fin)) > 0) {
+        taille += lus;
+        if (taille == capacite) {
+            capacite *= 2;
+            char *agrandi = (char*) realloc(contenu, capacite + 1);
+            if (!agrandi) {
+                free(contenu);
+                return NULL;
+            }
+            contenu = agrandi;
+        }
+    }
+    contenu[taille] = '\0';
+    return contenu;
+}
+
+bool ecrire_dechiffre(CleRSA *cle, FILE *fin, FILE *fout) {
+    char *contenu = lire_tout(fin);
+    if (!contenu) {
+        perror("Erreur de lecture du contenu chiffre");
+        return false;
+    }
+    bool succes = dechiffrer_contenu(cle, contenu, fout);
+    free(contenu);
+    return succes;
+}
+
+bool chiffrer_avec_cle(CleRSA *cle, const char *message, const char *fichier_sortie) {
+    if (!cle) {
+        fprintf(stderr, "Erreur: cle nulle\n");
+        return false;
+    }
+
+    FILE *fout = ouvrir_flux(fichier_sortie, "w");
+    if (!fout) {
+        perror("Erreur d'ouverture du fichier de sortie");
+        return false;
+    }
+
+    ecrire_chiffre(cle, message, fout);
+
+    fermer_flux(fout);
+    // Sur la sortie standard, le message d'état ne doit pas se mêler au chiffré
+    fprintf(est_flux_standard(fichier_sortie) ? stderr : stdout, "Message chiffre avec succes\n");
+    return true;
 }
 
-void chiffrer(const char *fichier_cle, const char *message, const char *fichier_sortie) {
+bool chiffrer(const char *fichier_cle, const char *message, const char *fichier_sortie) {
     CleRSA *cle = lire_cle(fichier_cle);
     if (!cle) {
         fprintf(stderr, "Erreur lecture cle\n");
-        return;
+        return false;
     }
     
-    chiffrer_avec_cle(cle, message, fichier_sortie);
+    bool succes = chiffrer_avec_cle(cle, message, fichier_sortie);
     liberer_cle(cle);
+    return succes;
 }
 
-void dechiffrer_avec_cle(CleRSA *cle, const char *fichier_entree, const char *fichier_sortie) {
+bool dechiffrer_avec_cle(CleRSA *cle, const char *fichier_entree, const char *fichier_sortie) {
     if (!cle) {
         fprintf(stderr, "Erreur: cle nulle\n");
-        return;
+        return false;
     }
 
-    FILE *fin = fopen(fichier_entree, "r");
+    FILE *fin = ouvrir_flux(fichier_entree, "r");
     if (!fin) {
         perror("Erreur d'ouverture du fichier d'entree");
-        return;
+        return false;
     }
 
-    FILE *fout = fopen(fichier_sortie, "w");
+    FILE *fout = ouvrir_flux(fichier_sortie, "w");
     if (!fout) {
         perror("Erreur d'ouverture du fichier de sortie");
-        fclose(fin);
-        return;
+        fermer_flux(fin);
+        return false;
     }
 
-    long long chiffre;
-    while (fscanf(fin, "%lld", &chiffre) == 1) {
-        long long dechiffre = exp_modulaire(chiffre, cle->e, cle->n);
-        fprintf(fout, "%c", (char) dechiffre);
-    }
+    bool succes = ecrire_dechiffre(cle, fin, fout);
 
-    fclose(fin);
-    fclose(fout);
-    printf("Message dechiffre avec succes\n");
+    fermer_flux(fin);
+    fermer_flux(fout);
+    if (!succes) return false;
+    fprintf(est_flux_standard(fichier_sortie) ? stderr : stdout, "Message dechiffre avec succes\n");
+    return true;
 }
 
-void dechiffrer(const char *fichier_cle, const char *fichier_entree, const char *fichier_sortie) {
+bool dechiffrer(const char *fichier_cle, const char *fichier_entree, const char *fichier_sortie) {
     // Lecture de la clé depuis le fichier
     CleRSA *cle = lire_cle(fichier_cle);
     if (!cle) {
         fprintf(stderr, "Erreur lecture cle\n");
-        return;
+        return false;
     }
     
     // Déchiffrement avec la structure CleRSA
-    dechiffrer_avec_cle(cle, fichier_entree, fichier_sortie);
+    bool succes = dechiffrer_avec_cle(cle, fichier_entree, fichier_sortie);
     
     // Libération de la mémoire allouée
     liberer_cle(cle);
+    return succes;
 }
 
 int longeur(const char *s) {
     return (int) strlen(s);
 }
 
+/* ===== MODE SERVEUR ===== */
+
+// Nombre de clés gardées en mémoire par un processus serveur
+#define TAILLE_CACHE_CLES 64
+// Taille maximale d'un champ de requête (protection contre un flux corrompu)
+#define TAILLE_CHAMP_MAX (64u * 1024u * 1024u)
+
+typedef struct {
+    char *chemin;          // Fichier de clé d'origine
+    struct timespec mtime; // Date de modification lors de la lecture (à la nanoseconde)
+    ino_t inode;           // Inode lors de la lecture (détecte un remplacement du fichier)
+    off_t taille;          // Taille lors de la lecture
+    unsigned long usage;   // Horodatage logique du dernier accès (éviction LRU)
+    CleRSA *cle;
+} EntreeCacheCle;
+
+static EntreeCacheCle cache_cles[TAILLE_CACHE_CLES];
+static unsigned long horloge_cache = 0;
+
+CleRSA *lire_cle_en_cache(const char *fichier) {
+    struct stat infos;
+    if (stat(fichier, &infos) != 0) {
+        perror("Erreur d'ouverture du fichier");
+        return NULL;
+    }
+
+    horloge_cache++;
+    int victime = 0;
+    for (int i = 0; i < TAILLE_CACHE_CLES; i++) {
+        EntreeCacheCle *entree = &cache_cles[i];
+        if (entree->chemin && strcmp(entree->chemin, fichier) == 0) {
+            // Clé inchangée sur le disque: aucune relecture
+            if (entree->mtime.tv_sec == infos.st_mtim.tv_sec
+                    && entree->mtime.tv_nsec == infos.st_mtim.tv_nsec
+                    && entree->inode == infos.st_ino
+                    && entree->taille == infos.st_size) {
+                entree->usage = horloge_cache;
+                return entree->cle;
+            }
+            victime = i;
+            break;
+        }
+        if (entree->usage < cache_cles[victime].usage) {
+            victime = i;
+        }
+    }
+
+    CleRSA *cle = lire_cle(fichier);
+    if (!cle) return NULL;
+
+    EntreeCacheCle *entree = &cache_cles[victime];
+    free(entree->chemin);
+    liberer_cle(entree->cle);
+    entree->chemin = strdup(fichier);
+    entree->mtime = infos.st_mtim;
+    entree->inode = infos.st_ino;
+    entree->taille = infos.st_size;
+    entree->usage = horloge_cache;
+    entree->cle = cle;
+    return cle;
+}
+
+static bool lire_entier(FILE *flux, uint32_t *valeur) {
+    unsigned char octets[4];
+    if (fread(octets, 1, 4, flux) != 4) return false;
+    *valeur = ((uint32_t) octets[0] << 24) | ((uint32_t) octets[1] << 16)
+            | ((uint32_t) octets[2] << 8) | (uint32_t) octets[3];
+    return true;
+}
+
+static void ecrire_entier(FILE *flux, uint32_t valeur) {
+    unsigned char octets[4] = {
+        (unsigned char) (valeur >> 24), (unsigned char) (valeur >> 16),
+        (unsigned char) (valeur >> 8), (unsigned char) valeur
+    };
+    fwrite(octets, 1, 4, flux);
+}
+
+static char *lire_champ(FILE *flux) {
+    uint32_t longueur;
+    if (!lire_entier(flux, &longueur) || longueur > TAILLE_CHAMP_MAX) return NULL;
+
+    char *champ = (char*) malloc(longueur + 1);
+    if (!champ) return NULL;
+    if (fread(champ, 1, longueur, flux) != longueur) {
+        free(champ);
+        return NULL;
+    }
+    champ[longueur] = '\0';
+    return champ;
+}
+
+static void repondre(unsigned char statut, const char *donnees, size_t longueur) {
+    fputc(statut, stdout);
+    ecrire_entier(stdout, (uint32_t) longueur);
+    fwrite(donnees, 1, longueur, stdout);
+    fflush(stdout);
+}
+
+static void repondre_erreur(const char *message) {
+    repondre(REPONSE_ERREUR, message, strlen(message));
+}
+
+static void traiter_chiffrement(const char *fichier_cle, const char *message) {
+    CleRSA *cle = lire_cle_en_cache(fichier_cle);
+    if (!cle) {
+        repondre_erreur("Erreur lecture cle");
+        return;
+    }
+
+    char *resultat = NULL;
+    size_t taille = 0;
+    FILE *fout = open_memstream(&resultat, &taille);
+    if (!fout) {
+        repondre_erreur("Erreur d'allocation memoire");
+        return;
+    }
+    ecrire_chiffre(cle, message, fout);
+    fclose(fout);
+
+    repondre(REPONSE_OK, resultat, taille);
+    free(resultat);
+}
+
+static void traiter_dechiffrement(const char *fichier_cle, const char *contenu) {
+    CleRSA *cle = lire_cle_en_cache(fichier_cle);
+    if (!cle) {
+        repondre_erreur("Erreur lecture cle");
+        return;
+    }
+
+    char *resultat = NULL;
+    size_t taille = 0;
+    FILE *fout = open_memstream(&resultat, &taille);
+    if (!fout) {
+        repondre_erreur("Erreur d'allocation memoire");
+        return;
+    }
+    bool succes = dechiffrer_contenu(cle, contenu, fout);
+    fclose(fout);
+
+    if (!succes) {
+        free(resultat);
+        repondre_erreur("Contenu chiffre invalide");
+        return;
+    }
+    repondre(REPONSE_OK, resultat, taille);
+    free(resultat);
+}
+
+int servir(void) {
+    // stdout est réservé aux réponses du protocole
+    sortie_etat = stderr;
+    mode_serveur = true;
+
+    int operation;
+    while ((operation = fgetc(stdin)) != EOF) {
+        char *premier = lire_champ(stdin);
+        char *second = premier ? lire_champ(stdin) : NULL;
+        if (!premier || !second) {
+            fprintf(stderr, "Requete mal formee, arret du serveur\n");
+            free(premier);
+            return 1;
+        }
+
+        switch (operation) {
+            case OPERATION_GENERER:
+                if (generer_cles(premier, second)) {
+                    repondre(REPONSE_OK, "", 0);
+                } else {
+                    repondre_erreur("Erreur generation des cles");
+                }
+                break;
+            case OPERATION_CHIFFRER:
+                traiter_chiffrement(premier, second);
+                break;
+            case OPERATION_DECHIFFRER:
+                traiter_dechiffrement(premier, second);
+                break;
+            default:
+                repondre_erreur("Operation inconnue");
+        }
+
+        free(premier);
+        free(second);
+    }
+
+    return 0;
+}
+
 /**
  * Fonction: main
  * Description: Point d'entrée du programme - gère les arguments en ligne de commande
@@ -302,6 +838,8 @@ int main(int argc, char const *argv[]) {
         printf("  %s generer <cle_publique> <cle_privee>\n", argv[0]);
         printf("  %s chiffrer <cle_publique> <message> <fichier_sortie>\n", argv[0]);
         printf("  %s dechiffrer <cle_privee> <fichier_chiffre> <fichier_sortie>\n", argv[0]);
+        printf("  %s serve\n", argv[0]);
+        printf("Un nom de fichier \"-\" designe l'entree ou la sortie standard\n");
         return 1;
     }
     
@@ -312,7 +850,7 @@ int main(int argc, char const *argv[]) {
             fprintf(stderr, "Usage: %s generer <cle_publique> <cle_privee>\n", argv[0]);
             return 1;
         }
-        generer_cles(argv[2], argv[3]);
+        if (!generer_cles(argv[2], argv[3])) return 1;
     }
     
     // COMMANDE: chiffrer
@@ -322,7 +860,7 @@ int main(int argc, char const *argv[]) {
             fprintf(stderr, "Usage: %s chiffrer <cle_publique> <message> <fichier_sortie>\n", argv[0]);
             return 1;
         }
-        chiffrer(argv[2], argv[3], argv[4]);
+        if (!chiffrer(argv[2], argv[3], argv[4])) return 1;
     }
     
     // COMMANDE: dechiffrer
@@ -332,7 +870,13 @@ int main(int argc, char const *argv[]) {
             fprintf(stderr, "Usage: %s dechiffrer <cle_privee> <fichier_chiffre> <fichier_sortie>\n", argv[0]);
             return 1;
         }
-        dechiffrer(argv[2], argv[3], argv[4]);
+        if (!dechiffrer(argv[2], argv[3], argv[4])) return 1;
+    }
+    
+    // COMMANDE: serve
+    // Traite des requêtes encadrées sur stdin jusqu'à la fin du flux
+    else if (strcmp(argv[1], "serve") == 0) {
+        return servir();
     }
     
     // COMMANDE INCONNUE
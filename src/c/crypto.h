@@ -8,6 +8,30 @@
 #include <stdbool.h>    // Pour le type booléen
 #include <string.h>     
 
+/* ===== FORMAT DU CONTENU CHIFFRE ===== */
+
+/*
+ * Format par blocs : ENTETE_BLOCS suivi du base64 de
+ * [longueur du message sur 4 octets big-endian][blocs chiffrés de taille fixe, big-endian]
+ * Un contenu sans en-tête est au format historique (un entier décimal par caractère)
+ */
+#define ENTETE_BLOCS "RSA2:"
+
+/* ===== PROTOCOLE DU MODE SERVEUR ===== */
+
+/*
+ * Requête : 1 octet d'opération, puis deux champs (longueur sur 4 octets big-endian + données)
+ *   'G' <cle_publique> <cle_privee>
+ *   'C' <cle_publique> <message>
+ *   'D' <cle_privee> <contenu_chiffre>
+ * Réponse : 1 octet de statut, puis un champ (résultat ou message d'erreur)
+ */
+#define OPERATION_GENERER    'G'
+#define OPERATION_CHIFFRER   'C'
+#define OPERATION_DECHIFFRER 'D'
+#define REPONSE_OK           0
+#define REPONSE_ERREUR       1
+
 /* ===== STRUCTURES DE DONNEES ===== */
 
 /**
@@ -20,6 +44,9 @@ typedef struct crypto {
     int p;              // PREMIER FACTEUR PREMIER
     int q;              // SECOND FACTEUR PREMIER
     int phi;            // INDICATRICE D'EULER: φ(n) = (p-1)(q-1)
+    int dp;             // RESTES CHINOIS: d mod (p-1) (0 si inconnu)
+    int dq;             // RESTES CHINOIS: d mod (q-1)
+    int qinv;           // RESTES CHINOIS: q^-1 mod p
     bool est_publique;  // TYPE DE CLE: true si publique, false si privée
 } CleRSA;
 
@@ -39,7 +66,7 @@ int inverse_modulaire(int e, int phi);
 
 /**
  * Fonction: estPremier
- * Description: Détermine si un nombre est premier
+ * Description: Détermine si un nombre est premier (Miller-Rabin, déterministe sur les int)
  */
 bool estPremier(int n);
 
@@ -55,15 +82,25 @@ int generer_premier(int min, int max);
  */
 long long exp_modulaire(long long base, long long exp, long long mod);
 
+/**
+ * Fonction: exp_privee
+ * Description: Calcule (c^d) mod n avec une clé privée, par les restes chinois
+ *              si la clé en contient les paramètres (dp, dq, qinv), sinon par exp_modulaire
+ *              c doit être positif (format par blocs)
+ */
+long long exp_privee(CleRSA *cle, long long c);
+
 /**
  * Fonction: generer_cles
  * Description: Génère une paire de clés RSA (publique et privée) 
  */
-void generer_cles(const char *fichier_publique, const char *fichier_prive);
+bool generer_cles(const char *fichier_publique, const char *fichier_prive);
 
 /**
  * Fonction: lire_cle
- * Description: Lit une clé RSA depuis un fichier
+ * Description: Lit une clé RSA depuis un fichier ("n\ne\n" ; une clé privée peut être suivie
+ *              de "p\nq\ndp\ndq\nqinv\n", absents des clés créées avant les restes chinois)
+ *              Retourne NULL si une valeur dépasse INT_MAX (clé de taille réelle générée en Java)
  */
 CleRSA *lire_cle(const char *fichier);
 
@@ -85,29 +122,108 @@ bool valider_cle(CleRSA *cle);
  */
 void liberer_cle(CleRSA *cle);
 
+/**
+ * Fonction: encoder_base64
+ * Description: Encode des octets en base64 (chaîne allouée, à libérer)
+ */
+char *encoder_base64(const unsigned char *donnees, size_t longueur);
+
+/**
+ * Fonction: decoder_base64
+ * Description: Décode du base64 (octets alloués, à libérer), NULL si invalide
+ */
+unsigned char *decoder_base64(const char *texte, size_t longueur, size_t *taille);
+
+/**
+ * Fonction: bits_module
+ * Description: Nombre de bits du module n d'une clé
+ */
+int bits_module(CleRSA *cle);
+
+/**
+ * Fonction: ecrire_chiffre_historique
+ * Description: Écrit le chiffré d'un message au format historique (un entier décimal par caractère)
+ */
+void ecrire_chiffre_historique(CleRSA *cle, const char *message, FILE *fout);
+
+/**
+ * Fonction: ecrire_chiffre
+ * Description: Écrit le chiffré d'un message au format par blocs dans un flux
+ */
+void ecrire_chiffre(CleRSA *cle, const char *message, FILE *fout);
+
+/**
+ * Fonction: dechiffrer_contenu
+ * Description: Déchiffre un contenu en mémoire, au format par blocs ou historique
+ */
+bool dechiffrer_contenu(CleRSA *cle, const char *contenu, FILE *fout);
+
+/**
+ * Fonction: lire_tout
+ * Description: Lit l'intégralité d'un flux dans une chaîne allouée (à libérer)
+ */
+char *lire_tout(FILE *fin);
+
+/**
+ * Fonction: ecrire_dechiffre
+ * Description: Lit un contenu chiffré depuis un flux et écrit le message déchiffré
+ */
+bool ecrire_dechiffre(CleRSA *cle, FILE *fin, FILE *fout);
+
 /**
  * Fonction: chiffrer_avec_cle
  * Description: Chiffre un message en utilisant une structure CleRSA
  */
-void chiffrer_avec_cle(CleRSA *cle, const char *message, const char *fichier_sortie);
+bool chiffrer_avec_cle(CleRSA *cle, const char *message, const char *fichier_sortie);
 
 /**
  * Fonction: dechiffrer_avec_cle
  * Description: Déchiffre un message en utilisant une structure CleRSA
  */
-void dechiffrer_avec_cle(CleRSA *cle, const char *fichier_entree, const char *fichier_sortie);
+bool dechiffrer_avec_cle(CleRSA *cle, const char *fichier_entree, const char *fichier_sortie);
 
 /**
  * Fonction: chiffrer
  * Description: Chiffre un message 
  */
-void chiffrer(const char *fichier_cle, const char *message, const char *fichier_sortie);
+bool chiffrer(const char *fichier_cle, const char *message, const char *fichier_sortie);
 
 /**
  * Fonction: dechiffrer
  * Description: Déchiffre un message 
  */
-void dechiffrer(const char *fichier_cle, const char *fichier_entree, const char *fichier_sortie);
+bool dechiffrer(const char *fichier_cle, const char *fichier_entree, const char *fichier_sortie);
+
+/**
+ * Fonction: est_flux_standard
+ * Description: Indique si le nom de fichier "-" désigne l'entrée/sortie standard
+ */
+bool est_flux_standard(const char *fichier);
+
+/**
+ * Fonction: ouvrir_flux
+ * Description: Ouvre un fichier, ou retourne stdin/stdout pour "-"
+ */
+FILE *ouvrir_flux(const char *fichier, const char *mode);
+
+/**
+ * Fonction: fermer_flux
+ * Description: Ferme un flux ouvert par ouvrir_flux (vide stdout sans le fermer)
+ */
+void fermer_flux(FILE *flux);
+
+/**
+ * Fonction: lire_cle_en_cache
+ * Description: Lit une clé en la gardant en mémoire tant que le fichier n'a pas changé
+ *              (la clé retournée appartient au cache et ne doit pas être libérée)
+ */
+CleRSA *lire_cle_en_cache(const char *fichier);
+
+/**
+ * Fonction: servir
+ * Description: Mode serveur, traite les requêtes du protocole jusqu'à la fin de stdin
+ */
+int servir(void);
 
 /**
  * Fonction: longeur
@@ -17,6 +17,24 @@ public interface ConnexionJDBC {
 	 */
 	Connection getConnection();
 	
+	/**
+	 * Emprunte une connexion pour une opération, à rendre ensuite avec rendre()
+	 * Par défaut, la connexion unique de getConnection() est partagée
+	 */
+	default Connection emprunter() throws SQLException {
+		Connection connexion = getConnection();
+		if (connexion == null) {
+			throw new SQLException("Connexion non ouverte");
+		}
+		return connexion;
+	}
+	
+	/**
+	 * Rend une connexion obtenue par emprunter()
+	 */
+	default void rendre(Connection connexion) {
+	}
+	
 	/**
 	 * Ferme proprement la connexion à la base de données
 	 */
@@ -11,10 +11,15 @@ public class MaConnexionJDBC implements ConnexionJDBC {
 	// Objet Connection pour maintenir la connexion active
 	private Connection connexion;
 	
-	// Paramètres de connexion à la base de données
-	private static final String USER = "root";
-	private static final String PASSWORD = "ton_mot_de_passe";
-	private static final String URL = "jdbc:mysql://localhost:3306/MessageSecurise?serverTimezone=UTC&useSSL=false";
+	// Paramètres de connexion à la base de données (repris par PoolConnexionJDBC)
+	static final String USER = "root";
+	static final String PASSWORD = "ton_mot_de_passe";
+	// rewriteBatchedStatements: les lots d'INSERT sont envoyés en une seule requête multi-lignes
+	// useServerPrepStmts + cachePrepStmts: chaque requête SQL n'est préparée qu'une fois par connexion,
+	// prepareStatement() réutilise ensuite le statement serveur gardé en cache par le driver
+	static final String URL = "jdbc:mysql://localhost:3306/MessageSecurise?serverTimezone=UTC&useSSL=false"
+		+ "&rewriteBatchedStatements=true"
+		+ "&useServerPrepStmts=true&cachePrepStmts=true&prepStmtCacheSize=64&prepStmtCacheSqlLimit=2048";
     
 	/**
 	 * Constructeur initialisant la connexion à null
@@ -0,0 +1,45 @@
+package database;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Étape versionnée du schéma de la base (voir MigrationsSchema)
+ * Une migration appliquée est enregistrée dans schema_version et n'est plus rejouée
+ */
+final class Migration {
+
+	/**
+	 * Instructions d'une migration, exécutées sur la connexion fournie
+	 */
+	@FunctionalInterface
+	interface Etape {
+		void appliquer(Connection connexion) throws SQLException;
+	}
+
+	private final int version;
+	private final String description;
+	private final Etape etape;
+
+	Migration(int version, String description, Etape etape) {
+		this.version = version;
+		this.description = description;
+		this.etape = etape;
+	}
+
+	int getVersion() {
+		return this.version;
+	}
+
+	String getDescription() {
+		return this.description;
+	}
+
+	void appliquer(Connection connexion) throws SQLException {
+		this.etape.appliquer(connexion);
+	}
+
+	@Override
+	public String toString() {
+		return "V" + version + " - " + description;
+	}
+}
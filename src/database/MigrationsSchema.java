@@ -0,0 +1,298 @@
+package database;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Migrations versionnées du schéma MessageSecurise, appliquées au démarrage
+ * Les versions déjà appliquées sont enregistrées dans la table schema_version
+ * Un verrou MySQL (GET_LOCK) évite que deux instances migrent en même temps
+ * Les compteurs par utilisateur (V3) ne sont créés que s'ils sont activés (-Ddb.compteurs=true) :
+ * leurs triggers ajoutent une écriture à chaque envoi et à chaque lecture
+ * Sans l'option, une V3 déjà appliquée est retirée (triggers, table et ligne de schema_version) ;
+ * la réactiver plus tard la rejoue, recalcul des totaux compris
+ */
+public class MigrationsSchema {
+	// Nom du verrou applicatif et délai d'attente (secondes)
+	private static final String VERROU = "MessageSecurise.migrations";
+	private static final int DELAI_VERROU_S = 30;
+	// Version de la migration des compteurs par utilisateur
+	private static final int VERSION_COMPTEURS = 3;
+
+	// Migrations connues, dans l'ordre des versions
+	private final List<Migration> migrations = new ArrayList<>();
+	private final boolean compteurs;
+
+	public MigrationsSchema() {
+		this(Boolean.getBoolean("db.compteurs"));
+	}
+
+	/**
+	 * @param compteurs inclure la migration des compteurs par utilisateur (V3)
+	 */
+	public MigrationsSchema(boolean compteurs) {
+		this.compteurs = compteurs;
+		migrations.add(new Migration(1, "Tables Utilisateurs et Messages", MigrationsSchema::creerTables));
+		migrations.add(new Migration(2, "Index de la boîte de réception et des noms d'utilisateur", MigrationsSchema::creerIndex));
+		if (compteurs) {
+			migrations.add(new Migration(VERSION_COMPTEURS, "Compteurs par utilisateur tenus à jour par triggers", MigrationsSchema::creerCompteurs));
+		}
+	}
+
+	/**
+	 * Applique les migrations manquantes, dans l'ordre, et retire les compteurs s'ils ne sont plus activés
+	 * Retourne le nombre de migrations appliquées
+	 */
+	public int appliquer(Connection connexion) throws SQLException {
+		try (Statement stmt = connexion.createStatement()) {
+			stmt.execute("CREATE TABLE IF NOT EXISTS schema_version ("
+				+ "version INT PRIMARY KEY, "
+				+ "description VARCHAR(255) NOT NULL, "
+				+ "date_application TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+		}
+
+		prendreVerrou(connexion);
+		try {
+			Set<Integer> appliquees = versionsAppliquees(connexion);
+			int nombre = 0;
+
+			for (Migration migration : migrations) {
+				if (appliquees.contains(migration.getVersion())) {
+					continue;
+				}
+				System.out.println("Migration du schéma: " + migration);
+				migration.appliquer(connexion);
+				enregistrer(connexion, migration);
+				nombre++;
+			}
+
+			if (!compteurs && appliquees.contains(VERSION_COMPTEURS)) {
+				System.out.println("Migration du schéma: retrait des compteurs par utilisateur (V" + VERSION_COMPTEURS + ", désactivés)");
+				retirerCompteurs(connexion);
+				oublier(connexion, VERSION_COMPTEURS);
+			}
+			return nombre;
+		}
+		finally {
+			libererVerrou(connexion);
+		}
+	}
+
+	/**
+	 * Retourne la version la plus récente appliquée (0 si aucune)
+	 */
+	public int versionCourante(Connection connexion) throws SQLException {
+		int version = 0;
+		for (int v : versionsAppliquees(connexion)) {
+			version = Math.max(version, v);
+		}
+		return version;
+	}
+
+	/**
+	 * Indique si les compteurs par utilisateur (V3) sont en place dans cette base
+	 * Faux si schema_version n'existe pas (base créée à la main, migrations désactivées)
+	 */
+	public boolean compteursAppliques(Connection connexion) throws SQLException {
+		try (Statement stmt = connexion.createStatement();
+			 ResultSet rs = stmt.executeQuery("SELECT 1 FROM information_schema.tables "
+				+ "WHERE table_schema = DATABASE() AND table_name = 'schema_version'")) {
+			if (!rs.next()) {
+				return false;
+			}
+		}
+		return versionsAppliquees(connexion).contains(VERSION_COMPTEURS);
+	}
+
+	// MIGRATIONS
+
+	/**
+	 * V1 : tables de base (sans effet sur une base créée à la main depuis le README)
+	 */
+	private static void creerTables(Connection connexion) throws SQLException {
+		try (Statement stmt = connexion.createStatement()) {
+			stmt.execute("CREATE TABLE IF NOT EXISTS Utilisateurs ("
+				+ "id INT AUTO_INCREMENT PRIMARY KEY, "
+				+ "nom_utilisateur VARCHAR(50) NOT NULL, "
+				+ "cle_publique VARCHAR(255) NOT NULL, "
+				+ "cle_privee VARCHAR(255) NOT NULL, "
+				+ "date_creation TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+			stmt.execute("CREATE TABLE IF NOT EXISTS Messages ("
+				+ "id INT AUTO_INCREMENT PRIMARY KEY, "
+				+ "expediteur_id INT NOT NULL, "
+				+ "destinataire_id INT NOT NULL, "
+				+ "contenu_chiffre TEXT NOT NULL, "
+				+ "date_envoi TIMESTAMP DEFAULT CURRENT_TIMESTAMP, "
+				+ "lu BOOLEAN DEFAULT FALSE, "
+				+ "FOREIGN KEY (expediteur_id) REFERENCES Utilisateurs(id), "
+				+ "FOREIGN KEY (destinataire_id) REFERENCES Utilisateurs(id))");
+		}
+	}
+
+	/**
+	 * V2 : index composites des requêtes de la boîte de réception, unicité des noms
+	 */
+	private static void creerIndex(Connection connexion) throws SQLException {
+		// Boîte de réception paginée (ORDER BY date_envoi DESC, id DESC)
+		creerIndexSiAbsent(connexion, "Messages", "idx_messages_destinataire_date",
+			"destinataire_id, date_envoi, id", false);
+		// Messages non lus et statistiques de lecture
+		creerIndexSiAbsent(connexion, "Messages", "idx_messages_destinataire_lu",
+			"destinataire_id, lu, date_envoi, id", false);
+		// Messages envoyés et correspondants
+		creerIndexSiAbsent(connexion, "Messages", "idx_messages_expediteur_date",
+			"expediteur_id, date_envoi", false);
+		// Déjà présent si la table vient du README (contrainte UNIQUE sur la colonne)
+		if (!existeIndexUnique(connexion, "Utilisateurs", "nom_utilisateur")) {
+			creerIndexSiAbsent(connexion, "Utilisateurs", "uq_utilisateurs_nom", "nom_utilisateur", true);
+		}
+	}
+
+	/**
+	 * V3 : table CompteursUtilisateurs, maintenue par triggers à l'envoi et à la lecture
+	 * Les triggers sont créés avant le recalcul : un message envoyé ou lu pendant la migration
+	 * est soit compté par le trigger puis inclus dans le recalcul, soit compté après lui par le trigger
+	 */
+	private static void creerCompteurs(Connection connexion) throws SQLException {
+		try (Statement stmt = connexion.createStatement()) {
+			stmt.execute("CREATE TABLE IF NOT EXISTS CompteursUtilisateurs ("
+				+ "utilisateur_id INT PRIMARY KEY, "
+				+ "messages_recus INT NOT NULL DEFAULT 0, "
+				+ "messages_lus INT NOT NULL DEFAULT 0, "
+				+ "messages_envoyes INT NOT NULL DEFAULT 0, "
+				+ "FOREIGN KEY (utilisateur_id) REFERENCES Utilisateurs(id))");
+
+			// Triggers recréés: la table a pu être créée à la main depuis une version précédente du README
+			stmt.execute("DROP TRIGGER IF EXISTS compteurs_envoi");
+			stmt.execute("DROP TRIGGER IF EXISTS compteurs_lecture");
+
+			stmt.execute("CREATE TRIGGER compteurs_envoi AFTER INSERT ON Messages FOR EACH ROW "
+				+ "INSERT INTO CompteursUtilisateurs "
+				+ "(utilisateur_id, messages_recus, messages_lus, messages_envoyes) "
+				+ "VALUES (NEW.destinataire_id, 1, IF(NEW.lu, 1, 0), 0), (NEW.expediteur_id, 0, 0, 1) "
+				+ "ON DUPLICATE KEY UPDATE "
+				+ "messages_recus = messages_recus + VALUES(messages_recus), "
+				+ "messages_lus = messages_lus + VALUES(messages_lus), "
+				+ "messages_envoyes = messages_envoyes + VALUES(messages_envoyes)");
+			stmt.execute("CREATE TRIGGER compteurs_lecture AFTER UPDATE ON Messages FOR EACH ROW "
+				+ "UPDATE CompteursUtilisateurs "
+				+ "SET messages_lus = messages_lus + (IF(NEW.lu, 1, 0) - IF(OLD.lu, 1, 0)) "
+				+ "WHERE utilisateur_id = NEW.destinataire_id");
+
+			// Recalcul des totaux existants, triggers déjà actifs (lectures verrouillantes de REPLACE ... SELECT)
+			stmt.execute("REPLACE INTO CompteursUtilisateurs "
+				+ "(utilisateur_id, messages_recus, messages_lus, messages_envoyes) "
+				+ "SELECT u.id, "
+				+ "(SELECT COUNT(*) FROM Messages WHERE destinataire_id = u.id), "
+				+ "(SELECT COALESCE(SUM(lu), 0) FROM Messages WHERE destinataire_id = u.id), "
+				+ "(SELECT COUNT(*) FROM Messages WHERE expediteur_id = u.id) "
+				+ "FROM Utilisateurs u");
+		}
+	}
+
+	/**
+	 * Retrait de V3 : plus aucune écriture supplémentaire à l'envoi et à la lecture
+	 * Les totaux sont dérivés des messages : ils sont recalculés si V3 est rejouée
+	 */
+	private static void retirerCompteurs(Connection connexion) throws SQLException {
+		try (Statement stmt = connexion.createStatement()) {
+			stmt.execute("DROP TRIGGER IF EXISTS compteurs_envoi");
+			stmt.execute("DROP TRIGGER IF EXISTS compteurs_lecture");
+			stmt.execute("DROP TABLE IF EXISTS CompteursUtilisateurs");
+		}
+	}
+
+	// OUTILS
+
+	/**
+	 * Crée un index s'il n'existe pas déjà sous ce nom (MySQL n'a pas de CREATE INDEX IF NOT EXISTS)
+	 */
+	private static void creerIndexSiAbsent(Connection connexion, String table, String nom, String colonnes, boolean unique)
+			throws SQLException {
+		String sql = "SELECT 1 FROM information_schema.statistics "
+			+ "WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?";
+		try (PreparedStatement pstmt = connexion.prepareStatement(sql)) {
+			pstmt.setString(1, table);
+			pstmt.setString(2, nom);
+			try (ResultSet rs = pstmt.executeQuery()) {
+				if (rs.next()) {
+					return;
+				}
+			}
+		}
+		try (Statement stmt = connexion.createStatement()) {
+			stmt.execute("CREATE " + (unique ? "UNIQUE " : "") + "INDEX " + nom + " ON " + table + " (" + colonnes + ")");
+		}
+	}
+
+	/**
+	 * Vérifie qu'un index unique porte exactement sur la colonne donnée
+	 */
+	private static boolean existeIndexUnique(Connection connexion, String table, String colonne) throws SQLException {
+		String sql = "SELECT index_name FROM information_schema.statistics "
+			+ "WHERE table_schema = DATABASE() AND table_name = ? AND non_unique = 0 "
+			+ "GROUP BY index_name HAVING COUNT(*) = 1 AND MAX(column_name) = ?";
+		try (PreparedStatement pstmt = connexion.prepareStatement(sql)) {
+			pstmt.setString(1, table);
+			pstmt.setString(2, colonne);
+			try (ResultSet rs = pstmt.executeQuery()) {
+				return rs.next();
+			}
+		}
+	}
+
+	private static Set<Integer> versionsAppliquees(Connection connexion) throws SQLException {
+		Set<Integer> versions = new HashSet<>();
+		try (Statement stmt = connexion.createStatement();
+			 ResultSet rs = stmt.executeQuery("SELECT version FROM schema_version")) {
+			while (rs.next()) {
+				versions.add(rs.getInt("version"));
+			}
+		}
+		return versions;
+	}
+
+	private static void enregistrer(Connection connexion, Migration migration) throws SQLException {
+		try (PreparedStatement pstmt = connexion.prepareStatement(
+				"INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+			pstmt.setInt(1, migration.getVersion());
+			pstmt.setString(2, migration.getDescription());
+			pstmt.executeUpdate();
+		}
+	}
+
+	private static void oublier(Connection connexion, int version) throws SQLException {
+		try (PreparedStatement pstmt = connexion.prepareStatement("DELETE FROM schema_version WHERE version = ?")) {
+			pstmt.setInt(1, version);
+			pstmt.executeUpdate();
+		}
+	}
+
+	private static void prendreVerrou(Connection connexion) throws SQLException {
+		try (PreparedStatement pstmt = connexion.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+			pstmt.setString(1, VERROU);
+			pstmt.setInt(2, DELAI_VERROU_S);
+			try (ResultSet rs = pstmt.executeQuery()) {
+				if (!rs.next() || rs.getInt(1) != 1) {
+					throw new SQLException("Verrou des migrations indisponible après " + DELAI_VERROU_S + " s");
+				}
+			}
+		}
+	}
+
+	private static void libererVerrou(Connection connexion) {
+		try (PreparedStatement pstmt = connexion.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+			pstmt.setString(1, VERROU);
+			pstmt.executeQuery().close();
+		}
+		catch (SQLException e) {
+			System.err.println("Erreur lors de la libération du verrou des migrations: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,402 @@
+package database;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool de connexions JDBC utilisable depuis plusieurs threads
+ * Chaque opération emprunte une connexion (emprunter) et la rend à la fin (rendre)
+ * - taille minimale et maximale, délai d'attente maximal pour un emprunt
+ * - validation à l'emprunt: une connexion morte (socket coupée) est remplacée
+ * - éviction des connexions inactives au-delà de la taille minimale
+ * - détection des fuites: une connexion gardée trop longtemps est signalée avec la pile de l'emprunteur
+ */
+public class PoolConnexionJDBC implements ConnexionJDBC {
+	// Valeurs par défaut
+	public static final int TAILLE_MIN_DEFAUT = 2;
+	public static final int TAILLE_MAX_DEFAUT = 10;
+	public static final long DELAI_EMPRUNT_DEFAUT_MS = 5_000;
+	public static final long DELAI_INACTIVITE_DEFAUT_MS = 60_000;
+	public static final long SEUIL_FUITE_DEFAUT_MS = 30_000;
+	// Délai accordé à Connection.isValid lors de la validation (secondes)
+	private static final int DELAI_VALIDATION_S = 2;
+
+	/**
+	 * Connexion gérée par le pool et son état
+	 */
+	private static final class Entree {
+		private final Connection connexion;
+		private long derniereUtilisation;
+		private long debutEmprunt;
+		private Throwable origineEmprunt;
+		private boolean fuiteSignalee;
+
+		private Entree(Connection connexion) {
+			this.connexion = connexion;
+			this.derniereUtilisation = System.currentTimeMillis();
+		}
+	}
+
+	// Paramètres de connexion
+	private final String url;
+	private final String utilisateur;
+	private final String motDePasse;
+	// Paramètres du pool
+	private final int tailleMin;
+	private final int tailleMax;
+	private final long delaiEmpruntMs;
+	private final long delaiInactiviteMs;
+	private final long seuilFuiteMs;
+
+	// Connexions libres, la plus récemment rendue en tête (les plus anciennes sont évincées en premier)
+	private final Deque<Entree> libres = new ArrayDeque<>();
+	// Connexions empruntées, par identité
+	private final Map<Connection, Entree> empruntees = new IdentityHashMap<>();
+	// Nombre total de connexions (libres, empruntées et en cours d'ouverture)
+	private int total;
+	private boolean ferme = true;
+	// Connexion réservée à getConnection() (appelants historiques mono-thread)
+	private final Object verrouPrincipale = new Object();
+	private Connection connexionPrincipale;
+	// Thread d'éviction et de détection des fuites
+	private ScheduledExecutorService maintenance;
+
+	/**
+	 * Constructeur avec les paramètres de MaConnexionJDBC et les valeurs par défaut du pool
+	 */
+	public PoolConnexionJDBC() {
+		this(MaConnexionJDBC.URL, MaConnexionJDBC.USER, MaConnexionJDBC.PASSWORD,
+			TAILLE_MIN_DEFAUT, TAILLE_MAX_DEFAUT,
+			DELAI_EMPRUNT_DEFAUT_MS, DELAI_INACTIVITE_DEFAUT_MS, SEUIL_FUITE_DEFAUT_MS);
+	}
+
+	/**
+	 * Constructeur complet (délais en millisecondes, seuilFuiteMs = 0 pour désactiver la détection)
+	 */
+	public PoolConnexionJDBC(String url, String utilisateur, String motDePasse,
+			int tailleMin, int tailleMax, long delaiEmpruntMs, long delaiInactiviteMs, long seuilFuiteMs) {
+		if (tailleMin < 0 || tailleMax < 1 || tailleMin > tailleMax) {
+			throw new IllegalArgumentException("Tailles de pool invalides: min=" + tailleMin + ", max=" + tailleMax);
+		}
+		this.url = url;
+		this.utilisateur = utilisateur;
+		this.motDePasse = motDePasse;
+		this.tailleMin = tailleMin;
+		this.tailleMax = tailleMax;
+		this.delaiEmpruntMs = delaiEmpruntMs;
+		this.delaiInactiviteMs = delaiInactiviteMs;
+		this.seuilFuiteMs = seuilFuiteMs;
+	}
+
+	/**
+	 * Charge le driver, ouvre les connexions minimales et démarre la maintenance
+	 */
+	@Override
+	public void openConnection() throws SQLException {
+		try {
+			// Chargement du driver MySQL JDBC
+			Class.forName("com.mysql.cj.jdbc.Driver");
+		}
+		catch (ClassNotFoundException e) {
+			System.err.println("Driver MySQL introuvable: " + e.getMessage());
+			throw new SQLException("Driver introuvable", e);
+		}
+
+		synchronized (this) {
+			if (!ferme) {
+				return;
+			}
+			ferme = false;
+		}
+
+		try {
+			for (int i = 0; i < tailleMin; i++) {
+				Entree entree = new Entree(ouvrir());
+				synchronized (this) {
+					total++;
+					libres.addLast(entree);
+				}
+			}
+		}
+		catch (SQLException e) {
+			closeConnection();
+			throw e;
+		}
+
+		long periode = Math.max(1_000, Math.min(delaiInactiviteMs, seuilFuiteMs > 0 ? seuilFuiteMs : delaiInactiviteMs) / 2);
+		maintenance = Executors.newSingleThreadScheduledExecutor(tache -> {
+			Thread thread = new Thread(tache, "pool-jdbc-maintenance");
+			thread.setDaemon(true);
+			return thread;
+		});
+		maintenance.scheduleWithFixedDelay(this::maintenir, periode, periode, TimeUnit.MILLISECONDS);
+		System.out.println("Connexion à la base de données établie avec succès (pool de " + tailleMin + " à " + tailleMax + " connexions).");
+	}
+
+	/**
+	 * Retourne une connexion dédiée aux appelants historiques qui n'empruntent pas
+	 * Elle reste hors du pool jusqu'à la fermeture; préférer emprunter()/rendre()
+	 */
+	@Override
+	public Connection getConnection() {
+		synchronized (verrouPrincipale) {
+			try {
+				if (connexionPrincipale == null || !estValide(connexionPrincipale)) {
+					if (connexionPrincipale != null) {
+						rendre(connexionPrincipale);
+					}
+					connexionPrincipale = emprunter();
+					// Connexion volontairement gardée: exclue de la détection des fuites
+					synchronized (this) {
+						empruntees.get(connexionPrincipale).fuiteSignalee = true;
+					}
+				}
+				return connexionPrincipale;
+			}
+			catch (SQLException e) {
+				System.err.println("Impossible d'obtenir une connexion: " + e.getMessage());
+				connexionPrincipale = null;
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Emprunte une connexion validée, en attendant au plus delaiEmpruntMs qu'une se libère
+	 */
+	@Override
+	public Connection emprunter() throws SQLException {
+		long limite = System.currentTimeMillis() + delaiEmpruntMs;
+
+		while (true) {
+			Entree entree = null;
+			boolean creer = false;
+
+			synchronized (this) {
+				while (true) {
+					if (ferme) {
+						throw new SQLException("Pool de connexions fermé");
+					}
+					if (!libres.isEmpty()) {
+						entree = libres.pollFirst();
+						break;
+					}
+					if (total < tailleMax) {
+						// Place réservée, la connexion est ouverte hors du verrou
+						total++;
+						creer = true;
+						break;
+					}
+					long attente = limite - System.currentTimeMillis();
+					if (attente <= 0) {
+						throw new SQLException("Aucune connexion disponible après " + delaiEmpruntMs + " ms (pool de "
+							+ tailleMax + " connexions, " + empruntees.size() + " empruntées)");
+					}
+					try {
+						wait(attente);
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new SQLException("Attente d'une connexion interrompue", e);
+					}
+				}
+			}
+
+			if (creer) {
+				try {
+					entree = new Entree(ouvrir());
+				}
+				catch (SQLException e) {
+					liberer();
+					throw e;
+				}
+			}
+			else if (!estValide(entree.connexion)) {
+				// Connexion morte: fermée puis remplacée au tour suivant
+				System.err.println("Connexion invalide retirée du pool.");
+				fermerSilencieusement(entree.connexion);
+				liberer();
+				continue;
+			}
+
+			synchronized (this) {
+				entree.debutEmprunt = System.currentTimeMillis();
+				entree.origineEmprunt = seuilFuiteMs > 0 ? new Throwable("Connexion empruntée ici") : null;
+				entree.fuiteSignalee = false;
+				empruntees.put(entree.connexion, entree);
+			}
+			return entree.connexion;
+		}
+	}
+
+	/**
+	 * Rend une connexion au pool (une transaction laissée ouverte est annulée)
+	 */
+	@Override
+	public void rendre(Connection connexion) {
+		if (connexion == null) {
+			return;
+		}
+		Entree entree;
+		synchronized (this) {
+			entree = empruntees.remove(connexion);
+		}
+		if (entree == null) {
+			System.err.println("Connexion rendue inconnue du pool, ignorée.");
+			return;
+		}
+
+		boolean reutilisable;
+		try {
+			if (!connexion.isClosed() && !connexion.getAutoCommit()) {
+				connexion.rollback();
+				connexion.setAutoCommit(true);
+			}
+			reutilisable = !connexion.isClosed();
+		}
+		catch (SQLException e) {
+			reutilisable = false;
+		}
+
+		synchronized (this) {
+			if (reutilisable && !ferme) {
+				entree.derniereUtilisation = System.currentTimeMillis();
+				entree.origineEmprunt = null;
+				libres.addFirst(entree);
+				notify();
+				return;
+			}
+		}
+		fermerSilencieusement(connexion);
+		liberer();
+	}
+
+	/**
+	 * Ferme toutes les connexions; les connexions encore empruntées le sont à leur retour
+	 */
+	@Override
+	public void closeConnection() throws SQLException {
+		synchronized (verrouPrincipale) {
+			if (connexionPrincipale != null) {
+				rendre(connexionPrincipale);
+				connexionPrincipale = null;
+			}
+		}
+
+		Deque<Entree> aFermer;
+		synchronized (this) {
+			ferme = true;
+			aFermer = new ArrayDeque<>(libres);
+			total -= libres.size();
+			libres.clear();
+			notifyAll();
+		}
+		if (maintenance != null) {
+			maintenance.shutdownNow();
+			maintenance = null;
+		}
+		for (Entree entree : aFermer) {
+			fermerSilencieusement(entree.connexion);
+		}
+	}
+
+	/**
+	 * Nombre total de connexions ouvertes par le pool
+	 */
+	public synchronized int getTaille() {
+		return total;
+	}
+
+	/**
+	 * Nombre de connexions actuellement empruntées
+	 */
+	public synchronized int getEmpruntees() {
+		return empruntees.size();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "PoolConnexionJDBC[total=" + total + ", libres=" + libres.size() + ", empruntées=" + empruntees.size()
+			+ ", min=" + tailleMin + ", max=" + tailleMax + "]";
+	}
+
+	/**
+	 * Tâche périodique: éviction des connexions inactives et signalement des fuites
+	 */
+	private void maintenir() {
+		long maintenant = System.currentTimeMillis();
+		Deque<Entree> evincees = new ArrayDeque<>();
+
+		synchronized (this) {
+			// Les plus anciennes sont en queue de file
+			Iterator<Entree> it = libres.descendingIterator();
+			while (it.hasNext() && total - evincees.size() > tailleMin) {
+				Entree entree = it.next();
+				if (maintenant - entree.derniereUtilisation < delaiInactiviteMs) {
+					break;
+				}
+				it.remove();
+				evincees.add(entree);
+			}
+			total -= evincees.size();
+
+			if (seuilFuiteMs > 0) {
+				for (Entree entree : empruntees.values()) {
+					if (!entree.fuiteSignalee && maintenant - entree.debutEmprunt > seuilFuiteMs) {
+						entree.fuiteSignalee = true;
+						System.err.println("Fuite probable: connexion empruntée depuis "
+							+ (maintenant - entree.debutEmprunt) + " ms sans être rendue.");
+						if (entree.origineEmprunt != null) {
+							entree.origineEmprunt.printStackTrace();
+						}
+					}
+				}
+			}
+		}
+
+		for (Entree entree : evincees) {
+			fermerSilencieusement(entree.connexion);
+		}
+	}
+
+	/**
+	 * Ouvre une nouvelle connexion physique
+	 */
+	private Connection ouvrir() throws SQLException {
+		return DriverManager.getConnection(url, utilisateur, motDePasse);
+	}
+
+	/**
+	 * Libère la place d'une connexion fermée et réveille un emprunteur en attente
+	 */
+	private synchronized void liberer() {
+		total--;
+		notify();
+	}
+
+	private static boolean estValide(Connection connexion) {
+		try {
+			return connexion.isValid(DELAI_VALIDATION_S);
+		}
+		catch (SQLException e) {
+			return false;
+		}
+	}
+
+	private static void fermerSilencieusement(Connection connexion) {
+		try {
+			connexion.close();
+		}
+		catch (SQLException e) {
+			System.err.println("Erreur lors de la fermeture d'une connexion: " + e.getMessage());
+		}
+	}
+}
@@ -13,6 +13,7 @@ public class Message {
 	private String contenuChiffre;       // Message chiffré avec RSA
 	private Timestamp dateEnvoi;         // Date et heure d'envoi
 	private Boolean lu;                  // Statut de lecture du message
+	private String nomExpediteur;        // Nom de l'expéditeur (renseigné par jointure, peut être null)
 
 	/**
 	 * Constructeur complet avec tous les champs
@@ -91,6 +92,14 @@ public class Message {
 		this.id = id;
 	}
 
+	public String getNomExpediteur() {
+		return this.nomExpediteur;
+	}
+
+	public void setNomExpediteur(String nomExpediteur) {
+		this.nomExpediteur = nomExpediteur;
+	}
+
 	public Timestamp getDateEnvoi() {
 		return this.dateEnvoi;
 	}
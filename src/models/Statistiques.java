@@ -0,0 +1,93 @@
+package models;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Classe modèle regroupant les statistiques de messagerie d'un utilisateur
+ * Calculée par agrégats SQL, sans charger les messages eux-mêmes
+ */
+public class Statistiques {
+	private int messagesRecus;                                         // Nombre de messages reçus
+	private int messagesLus;                                           // Nombre de messages reçus déjà lus
+	private int messagesEnvoyes;                                       // Nombre de messages envoyés
+	private Map<String, Integer> correspondants = new LinkedHashMap<>(); // Nom → messages échangés, par ordre décroissant
+	private Map<LocalDate, Integer> volumeParJour = new LinkedHashMap<>(); // Jour → messages reçus, par ordre chronologique
+
+	/**
+	 * Constructeur avec les compteurs principaux
+	 */
+	public Statistiques(int messagesRecus, int messagesLus, int messagesEnvoyes) {
+		this.setMessagesRecus(messagesRecus);
+		this.setMessagesLus(messagesLus);
+		this.setMessagesEnvoyes(messagesEnvoyes);
+	}
+
+	// GETTERS ET SETTERS
+
+	public int getMessagesRecus() {
+		return this.messagesRecus;
+	}
+
+	public void setMessagesRecus(int messagesRecus) {
+		this.messagesRecus = messagesRecus;
+	}
+
+	public int getMessagesLus() {
+		return this.messagesLus;
+	}
+
+	public void setMessagesLus(int messagesLus) {
+		this.messagesLus = messagesLus;
+	}
+
+	public int getMessagesEnvoyes() {
+		return this.messagesEnvoyes;
+	}
+
+	public void setMessagesEnvoyes(int messagesEnvoyes) {
+		this.messagesEnvoyes = messagesEnvoyes;
+	}
+
+	public Map<String, Integer> getCorrespondants() {
+		return this.correspondants;
+	}
+
+	public void setCorrespondants(Map<String, Integer> correspondants) {
+		this.correspondants = correspondants;
+	}
+
+	public Map<LocalDate, Integer> getVolumeParJour() {
+		return this.volumeParJour;
+	}
+
+	public void setVolumeParJour(Map<LocalDate, Integer> volumeParJour) {
+		this.volumeParJour = volumeParJour;
+	}
+
+	/**
+	 * Nombre de messages reçus non lus
+	 */
+	public int getMessagesNonLus() {
+		return this.messagesRecus - this.messagesLus;
+	}
+
+	/**
+	 * Pourcentage de messages reçus déjà lus (0 si aucun message)
+	 */
+	public double getTauxLecture() {
+		return this.messagesRecus > 0 ? (this.messagesLus * 100.0) / this.messagesRecus : 0;
+	}
+
+	@Override
+	public String toString() {
+		return "Statistiques { " +
+				"recus = " + messagesRecus +
+				", lus = " + messagesLus +
+				", envoyes = " + messagesEnvoyes +
+				", correspondants = " + correspondants +
+				", volumeParJour = " + volumeParJour +
+				'}';
+	}
+}
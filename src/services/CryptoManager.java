@@ -1,230 +1,378 @@
 package services;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+import exceptions.CryptoException;
+import models.Message;
+import services.crypto.CacheCles;
+import services.crypto.ClesEnAttente;
+import services.crypto.CryptoBackend;
+import services.crypto.EnveloppeHybride;
+import services.crypto.FabriqueCles;
+import services.crypto.FichiersCles;
+import services.crypto.FormatChiffre;
+import services.crypto.JavaCryptoBackend;
+import services.crypto.PaireCles;
+import services.crypto.PoolCryptoBackend;
+import services.crypto.ProcessCryptoBackend;
 
 /**
  * Gestionnaire des opérations cryptographiques RSA
+ * Le calcul est délégué à un moteur (CryptoBackend) choisi via la propriété système "crypto.backend":
+ * "java" (par défaut, dans la JVM), "processus" (exécutable C ./crypto, échanges par stdin/stdout)
+ * "processus-fichiers" (exécutable C, échanges par fichiers temporaires)
+ * ou "pool" (processus C gardés en vie en mode serveur)
+ * Les messages longs sont chiffrés en mode hybride (clé de session RSA + AES-GCM), voir EnveloppeHybride
  */
 public class CryptoManager {
-	// Chemin vers l'exécutable de chiffrement
-	private static final String CRYPTO_EXECUTABLE = "./crypto";
+	// Noms des moteurs disponibles
+	public static final String BACKEND_JAVA = "java";
+	public static final String BACKEND_PROCESSUS = "processus";
+	public static final String BACKEND_PROCESSUS_FICHIERS = "processus-fichiers";
+	public static final String BACKEND_POOL = "pool";
+	// Taille (en caractères) à partir de laquelle un message est chiffré en mode hybride
+	public static final int SEUIL_HYBRIDE_DEFAUT = 128;
+	// Nombre de déchiffrements soumis d'avance par thread (voir dechiffrerTous)
+	private static final int ENCOURS_PAR_THREAD = 4;
 	// Répertoire de stockage des clés RSA
     private static final String KEYS_DIR = "keys/";
-    // Répertoire temporaire pour les fichiers de chiffrement
-    private static final String TEMP_DIR = "temp/";
-    
+
+    // Résolution des chemins de clés
+    private final FichiersCles fichiersCles;
+    // Moteur effectuant les opérations RSA
+    private final CryptoBackend backend;
+    // Longueur minimale d'un message pour le mode hybride (0 = toujours, Integer.MAX_VALUE = jamais)
+    private int seuilHybride;
+    // Threads des opérations en lot, créés au premier besoin
+    private ExecutorService executeur;
+    // Paires de clés générées d'avance (null tant que preparerCles() n'a pas été appelé)
+    private FabriqueCles fabriqueCles;
+
     /**
-     * Constructeur qui initialise les répertoires nécessaires
+     * Constructeur qui initialise les répertoires et le moteur configuré
      */
     public CryptoManager() {
+    	this(System.getProperty("crypto.backend", BACKEND_JAVA));
+    }
+
+    /**
+     * Constructeur avec le nom du moteur à utiliser (voir les constantes BACKEND_*)
+     */
+    public CryptoManager(String nomBackend) {
+    	this.fichiersCles = new FichiersCles(KEYS_DIR);
       	creerRepertoires();
+      	this.backend = creerBackend(nomBackend);
+      	this.seuilHybride = Integer.getInteger("crypto.seuilHybride", SEUIL_HYBRIDE_DEFAUT);
     }
-    
+
     /**
-     * Crée les répertoires keys/ et temp/ s'ils n'existent pas
+     * Instancie le moteur correspondant au nom donné
+     */
+    private CryptoBackend creerBackend(String nomBackend) {
+    	switch (nomBackend) {
+    		case BACKEND_JAVA:
+    			// -Dcrypto.bitsCles : taille des nouvelles clés (0, par défaut : clés lisibles par le module C)
+    			return new JavaCryptoBackend(fichiersCles, CacheCles.CAPACITE_DEFAUT,
+    				Integer.getInteger("crypto.bitsCles", JavaCryptoBackend.BITS_DEFAUT));
+    		case BACKEND_PROCESSUS:
+    			return new ProcessCryptoBackend(fichiersCles, ProcessCryptoBackend.Echange.FLUX);
+    		case BACKEND_PROCESSUS_FICHIERS:
+    			return new ProcessCryptoBackend(fichiersCles, ProcessCryptoBackend.Echange.FICHIERS);
+    		case BACKEND_POOL:
+    			return new PoolCryptoBackend(fichiersCles);
+    		default:
+    			throw new IllegalArgumentException("Moteur de chiffrement inconnu: " + nomBackend);
+    	}
+    }
+
+    /**
+     * Crée le répertoire keys/ s'il n'existe pas
      */
     public void creerRepertoires() {
-    	new File(KEYS_DIR).mkdir();
-    	new File(TEMP_DIR).mkdir();
+    	fichiersCles.creerRepertoire();
+    }
+
+    /**
+     * Lance la pré-génération de paires de clés en arrière-plan (voir FabriqueCles)
+     * Taille de la réserve : -Dcrypto.reserveCles (0 pour désactiver)
+     * Retourne la réserve, ou null si elle est désactivée
+     */
+    public synchronized FabriqueCles preparerCles() {
+    	int capacite = Integer.getInteger("crypto.reserveCles", FabriqueCles.CAPACITE_DEFAUT);
+    	if (fabriqueCles == null && capacite > 0) {
+    		fabriqueCles = new FabriqueCles(backend, capacite,
+    			Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    	}
+    	return fabriqueCles;
     }
-    
+
     /**
      * Génère une paire de clés RSA (publique et privée) pour un utilisateur
+     * Avec une réserve active, une paire prête est simplement enregistrée
      */
     public Boolean genererCles(String nomUtilisateur) {
-    	// Construction des chemins des fichiers de clés
-    	String clePublique = KEYS_DIR + nomUtilisateur + "_public.key";
-        String clePrivee = KEYS_DIR + nomUtilisateur + "_private.key";
-        
         try {
-        	// Création du processus pour exécuter la commande de génération
-        	ProcessBuilder pb = new ProcessBuilder(
-        			CRYPTO_EXECUTABLE,
-        			"generer",
-        			clePublique,
-        			clePrivee
-        			);
-        	// Redirige les erreurs vers la sortie standard
-        	pb.redirectErrorStream(true);
-        	Process process = pb.start();
-        	
-        	// Lecture de la sortie du processus
-        	BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(process.getInputStream())
-                );
-        	
-        	String ligne;
-        	// Affiche chaque ligne de sortie du processus
-            while ((ligne = reader.readLine()) != null) {
-                System.out.println(ligne);
-            }
-            
-            // Attend la fin du processus et récupère le code de retour
-            int exitCode = process.waitFor();
-            reader.close();
-            // Code 0 = succès
-            return exitCode == 0;
-        }
-        catch (IOException e) {
-            System.err.println("Erreur I/O lors de la génération des clés: " + e.getMessage());
+        	FabriqueCles fabrique = getFabriqueCles();
+        	if (fabrique != null) {
+        		enregistrer(nomUtilisateur, fabrique.prendre());
+        	} else {
+        		backend.genererCles(nomUtilisateur);
+        	}
+        	return true;
+        }
+        catch (CryptoException e) {
+            System.err.println("Erreur lors de la génération des clés: " + e.getMessage());
             return false;
-        } 
-        catch (InterruptedException e) {
-            System.err.println("Processus interrompu: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Génère pour un utilisateur une paire de clés dont le module fait le nombre de bits demandé
+     * (ex: 2048 ou 3072) ; seul le moteur Java le permet
+     */
+    public Boolean genererCles(String nomUtilisateur, int bits) {
+        try {
+        	enregistrer(nomUtilisateur, backend.genererPaire(bits));
+        	return true;
+        }
+        catch (CryptoException e) {
+            System.err.println("Erreur lors de la génération des clés: " + e.getMessage());
             return false;
         }
     }
-    
+
+    /**
+     * Génère une paire de clés sans l'enregistrer (prise dans la réserve si elle est active)
+     * Retourne null en cas d'erreur
+     */
+    public PaireCles genererPaire() {
+        try {
+        	FabriqueCles fabrique = getFabriqueCles();
+        	return fabrique != null ? fabrique.prendre() : backend.genererPaire();
+        }
+        catch (CryptoException e) {
+            System.err.println("Erreur lors de la génération des clés: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Génère une paire de clés et l'écrit dans des fichiers provisoires, sans toucher aux clés de l'utilisateur
+     * installerCles() les met en place (ex: une fois le compte créé en base) ; retourne null en cas d'erreur
+     */
+    public ClesEnAttente genererClesEnAttente(String nomUtilisateur) {
+        PaireCles paire = genererPaire();
+        if (paire == null) {
+            return null;
+        }
+        try {
+        	return fichiersCles.ecrireEnAttente(nomUtilisateur, paire);
+        }
+        catch (CryptoException e) {
+            System.err.println("Erreur lors de l'enregistrement des clés: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Met en place des clés préparées par genererClesEnAttente() (remplace les précédentes)
+     */
+    public Boolean installerCles(ClesEnAttente cles) {
+        try {
+        	cles.installer();
+        	backend.invaliderCles(cles.getNomUtilisateur());
+        	return true;
+        }
+        catch (CryptoException e) {
+            System.err.println("Erreur lors de l'enregistrement des clés: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void enregistrer(String nomUtilisateur, PaireCles paire) throws CryptoException {
+    	paire.getPublique().ecrire(fichiersCles.clePublique(nomUtilisateur));
+    	paire.getPrivee().ecrire(fichiersCles.clePrivee(nomUtilisateur));
+    	// Le moteur ne doit plus servir d'anciennes clés gardées en cache
+    	backend.invaliderCles(nomUtilisateur);
+    }
+
     /**
      * Chiffre un message avec la clé publique du destinataire
      */
     public String chiffrerMessage(String nomDestinataire, String message) {
-        String clePublique = KEYS_DIR + nomDestinataire + "_public.key";
-        // Nom unique basé sur le timestamp pour éviter les collisions
-        String fichierChiffre = TEMP_DIR + "msg_" + System.currentTimeMillis() + ".enc";
-        
         try {
-            // Commande de chiffrement avec clé publique, message et fichier de sortie
-            ProcessBuilder pb = new ProcessBuilder(
-                CRYPTO_EXECUTABLE,
-                "chiffrer",
-                clePublique,
-                message,
-                fichierChiffre
-            );
-            
-            pb.redirectErrorStream(true);
-            Process process = pb.start();
-                        
-            BufferedReader reader = new BufferedReader(
-                new InputStreamReader(process.getInputStream())
-            );
-            
-            String ligne;
-            while ((ligne = reader.readLine()) != null) {
-                System.out.println(ligne);
+            if (message.length() >= seuilHybride) {
+                return EnveloppeHybride.chiffrer(backend, nomDestinataire, message);
             }
-            
-            int exitCode = process.waitFor();
-            reader.close();
-            
-            // Si le chiffrement a réussi, lire le fichier chiffré
-            if (exitCode == 0) {                
-                BufferedReader fileReader = new BufferedReader(
-                    new FileReader(fichierChiffre)
-                );
-                
-                // Construction du contenu chiffré
-                StringBuilder contenu = new StringBuilder();
-                String line;
-                while ((line = fileReader.readLine()) != null) {
-                    contenu.append(line).append("\n");
-                }
-                fileReader.close();
-                
-                // Suppression du fichier temporaire
-                new File(fichierChiffre).delete();
-                
-                return contenu.toString().trim();
-            }
-            
-        } catch (IOException e) {
+            return backend.chiffrer(nomDestinataire, message);
+        } catch (CryptoException e) {
             System.err.println("Erreur lors du chiffrement: " + e.getMessage());
-        } catch (InterruptedException e) {
-            System.err.println("Processus interrompu: " + e.getMessage());
+            return null;
         }
-        
-        return null;
     }
-        
+
     /**
      * Déchiffre un message avec la clé privée de l'utilisateur
      */
     public String dechiffrerMessage(String nomUtilisateur, String contenuChiffre) {
-        String clePrivee = KEYS_DIR + nomUtilisateur + "_private.key";
-        // Fichiers temporaires pour le chiffré et le déchiffré
-        String fichierChiffre = TEMP_DIR + "msg_" + System.currentTimeMillis() + ".enc";
-        String fichierDechiffre = TEMP_DIR + "msg_" + System.currentTimeMillis() + ".dec";
-        
-        try {            
-            // Écriture du contenu chiffré dans un fichier temporaire
-            BufferedWriter writer = new BufferedWriter(new FileWriter(fichierChiffre));
-            writer.write(contenuChiffre);
-            writer.close();
-            
-            // Commande de déchiffrement
-            ProcessBuilder pb = new ProcessBuilder(
-                CRYPTO_EXECUTABLE,
-                "dechiffrer",
-                clePrivee,
-                fichierChiffre,
-                fichierDechiffre
-            );
-            
-            pb.redirectErrorStream(true);
-            Process process = pb.start();
-            
-            BufferedReader reader = new BufferedReader(
-                new InputStreamReader(process.getInputStream())
-            );
-            
-            String ligne;
-            while ((ligne = reader.readLine()) != null) {
-                System.out.println(ligne);
+        try {
+            if (FormatChiffre.detecter(contenuChiffre) == FormatChiffre.Version.HYBRIDE) {
+                return EnveloppeHybride.dechiffrer(backend, nomUtilisateur, contenuChiffre);
+            }
+            return backend.dechiffrer(nomUtilisateur, contenuChiffre);
+        } catch (CryptoException e) {
+            System.err.println("Erreur lors du déchiffrement: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Chiffre un message propre à chaque destinataire, en parallèle sur tous les cœurs
+     * Retourne les chiffrés par destinataire (les échecs sont signalés et omis)
+     */
+    public Map<String, String> chiffrerPourTous(Map<String, String> messagesParDestinataire) {
+        Map<String, Future<String>> taches = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entree : messagesParDestinataire.entrySet()) {
+            taches.put(entree.getKey(), getExecuteur().submit(
+                () -> chiffrerMessage(entree.getKey(), entree.getValue())));
+        }
+        return attendreResultats(taches);
+    }
+
+    /**
+     * Chiffre un même message pour plusieurs destinataires, en parallèle
+     * En mode hybride, le message n'est chiffré qu'une fois: seule la clé de session l'est par destinataire
+     */
+    public Map<String, String> chiffrerPourTous(Collection<String> destinataires, String message) {
+        if (message.length() < seuilHybride) {
+            Map<String, String> messages = new LinkedHashMap<>();
+            for (String destinataire : destinataires) {
+                messages.put(destinataire, message);
             }
-            
-            int exitCode = process.waitFor();
-            reader.close();
-            
-            // Si le déchiffrement a réussi, lire le fichier déchiffré
-            if (exitCode == 0) {
-                BufferedReader fileReader = new BufferedReader(
-                    new FileReader(fichierDechiffre)
-                );
-                
-                StringBuilder contenu = new StringBuilder();
-                String line;
-                while ((line = fileReader.readLine()) != null) {
-                    contenu.append(line);
+            return chiffrerPourTous(messages);
+        }
+
+        EnveloppeHybride.Corps corps;
+        try {
+            corps = EnveloppeHybride.chiffrerCorps(message);
+        } catch (CryptoException e) {
+            System.err.println("Erreur lors du chiffrement: " + e.getMessage());
+            return new LinkedHashMap<>();
+        }
+
+        Map<String, Future<String>> taches = new LinkedHashMap<>();
+        for (String destinataire : destinataires) {
+            taches.put(destinataire, getExecuteur().submit(() -> {
+                try {
+                    return corps.envelopper(backend.chiffrer(destinataire, corps.getCleSession()));
+                } catch (CryptoException e) {
+                    System.err.println("Erreur lors du chiffrement pour " + destinataire + ": " + e.getMessage());
+                    return null;
                 }
-                fileReader.close();
-                
-                // Nettoyage des fichiers temporaires
-                new File(fichierChiffre).delete();
-                new File(fichierDechiffre).delete();
-                
-                return contenu.toString();
+            }));
+        }
+        return attendreResultats(taches);
+    }
+
+    /**
+     * Déchiffre une série de messages en parallèle et transmet chaque résultat dès qu'il est prêt,
+     * dans l'ordre de la liste (ordre de date_envoi renvoyé par la base)
+     * Au plus ENCOURS_PAR_THREAD tâches par thread sont soumises d'avance: la mémoire reste bornée
+     * même pour des milliers de messages. Le texte transmis vaut null en cas d'échec
+     * Retourne le nombre de messages déchiffrés avec succès
+     */
+    public int dechiffrerTous(String nomUtilisateur, List<Message> messages, BiConsumer<Message, String> traitement) {
+        ExecutorService executeurLot = getExecuteur();
+        int fenetre = Runtime.getRuntime().availableProcessors() * ENCOURS_PAR_THREAD;
+        Deque<Future<String>> enCours = new ArrayDeque<>(fenetre);
+        int soumis = 0;
+        int reussis = 0;
+
+        for (Message message : messages) {
+            while (soumis < messages.size() && enCours.size() < fenetre) {
+                String contenu = messages.get(soumis++).getContenuChiffre();
+                enCours.add(executeurLot.submit(() -> dechiffrerMessage(nomUtilisateur, contenu)));
             }
-            
-        } catch (IOException e) {
-            System.err.println("Erreur lors du déchiffrement: " + e.getMessage());
-        } catch (InterruptedException e) {
-            System.err.println("Processus interrompu: " + e.getMessage());
+
+            String clair = null;
+            try {
+                clair = enCours.poll().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                System.err.println("Déchiffrement interrompu: " + e.getMessage());
+                enCours.forEach(tache -> tache.cancel(true));
+                break;
+            } catch (ExecutionException e) {
+                System.err.println("Erreur lors du déchiffrement: " + e.getCause());
+            }
+
+            if (clair != null) reussis++;
+            traitement.accept(message, clair);
         }
-        
-        return null;
+        return reussis;
     }
-        
+
+    /**
+     * Récupère les résultats des tâches dans l'ordre de soumission, sans les échecs
+     */
+    private Map<String, String> attendreResultats(Map<String, Future<String>> taches) {
+        Map<String, String> resultats = new LinkedHashMap<>();
+        for (Map.Entry<String, Future<String>> tache : taches.entrySet()) {
+            try {
+                String chiffre = tache.getValue().get();
+                if (chiffre != null) {
+                    resultats.put(tache.getKey(), chiffre);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                System.err.println("Chiffrement interrompu: " + e.getMessage());
+                break;
+            } catch (ExecutionException e) {
+                System.err.println("Erreur lors du chiffrement pour " + tache.getKey() + ": " + e.getCause());
+            }
+        }
+        return resultats;
+    }
+
+    /**
+     * Retourne le pool de threads des opérations en lot (un thread par cœur)
+     */
+    synchronized ExecutorService getExecuteur() {
+        if (executeur == null) {
+            executeur = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), tache -> {
+                Thread thread = new Thread(tache, "crypto-lot");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executeur;
+    }
+
     /**
      * Retourne le chemin complet vers la clé publique d'un utilisateur
      */
     public String getCheminClePublique(String nomUtilisateur) {
-        return KEYS_DIR + nomUtilisateur + "_public.key";
+        return fichiersCles.clePublique(nomUtilisateur);
     }
-    
+
     /**
      * Retourne le chemin complet vers la clé privée d'un utilisateur
      */
     public String getCheminClePrivee(String nomUtilisateur) {
-        return KEYS_DIR + nomUtilisateur + "_private.key";
+        return fichiersCles.clePrivee(nomUtilisateur);
     }
-        
+
     /**
      * Vérifie si les deux clés (publique et privée) existent pour un utilisateur
      */
@@ -233,4 +381,43 @@ public class CryptoManager {
         File clePrivee = new File(getCheminClePrivee(nomUtilisateur));
         return clePublique.exists() && clePrivee.exists();
     }
+
+    public int getSeuilHybride() {
+        return this.seuilHybride;
+    }
+
+    public void setSeuilHybride(int seuilHybride) {
+        this.seuilHybride = seuilHybride;
+    }
+
+    /**
+     * Retourne le moteur utilisé (ex: pour consulter les compteurs du cache de clés)
+     */
+    public CryptoBackend getBackend() {
+        return this.backend;
+    }
+
+    /**
+     * Retourne la réserve de clés (null si preparerCles() n'a pas été appelé)
+     */
+    public synchronized FabriqueCles getFabriqueCles() {
+        return this.fabriqueCles;
+    }
+
+    /**
+     * Libère les ressources du moteur de chiffrement
+     */
+    public void fermer() {
+        synchronized (this) {
+            if (executeur != null) {
+                executeur.shutdownNow();
+                executeur = null;
+            }
+            if (fabriqueCles != null) {
+                fabriqueCles.fermer();
+                fabriqueCles = null;
+            }
+        }
+        backend.fermer();
+    }
 }
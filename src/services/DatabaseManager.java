@@ -1,214 +1,790 @@
 package services;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import database.ConnexionJDBC;
 import database.MaConnexionJDBC;
+import database.MigrationsSchema;
+import database.PoolConnexionJDBC;
 import models.Message;
+import models.Statistiques;
 import models.Utilisateur;
 
 /**
  * Classe responsable de la gestion des opérations liées à la base de données.
  * Elle encapsule toutes les interactions SQL (CRUD) pour les utilisateurs et les messages.
+ * Chaque opération emprunte sa propre connexion: les méthodes sont utilisables depuis plusieurs threads.
+ * Les statements fermés retournent dans le cache du driver (cachePrepStmts): une requête n'est préparée
+ * par le serveur qu'une fois par connexion du pool.
  */
-public class DatabaseManager {
+public class DatabaseManager implements MessageStore {
 	
+    // Nombre de correspondants et de jours retenus dans les statistiques
+	private static final int NOMBRE_CORRESPONDANTS = 5;
+	private static final int JOURS_VOLUME = 7;
+    // Nombre maximal d'identifiants par UPDATE ... WHERE id IN (...)
+	private static final int TAILLE_LOT_LECTURES = 500;
+
     // Objet de connexion à la base JDBC (interface abstraite)
 	private ConnexionJDBC connexionJDBC;
+    // Compteurs par utilisateur demandés (-Ddb.compteurs=true), migration V3 incluse
+	private final boolean compteursDemandes;
+    // Lecture des compteurs depuis la table CompteursUtilisateurs (maintenue par triggers) :
+    // fixé par initialiser() selon que la migration V3 est réellement appliquée
+	private volatile boolean compteursActives;
+    // Accusés de lecture en attente d'écriture groupée
+	private final TamponLectures tamponLectures;
+    // Utilisateurs gardés en mémoire (null avec -Ddb.annuaire=false)
+	private final UserDirectory annuaire;
 	
     /**
-     * Constructeur : instancie une connexion JDBC via MaConnexionJDBC.
+     * Constructeur : instancie un pool de connexions JDBC (PoolConnexionJDBC).
+     * Avec -Ddb.pool=false, une connexion unique est utilisée (MaConnexionJDBC).
      */
 	public DatabaseManager() {
-		this.connexionJDBC = new MaConnexionJDBC();
+		this(Boolean.parseBoolean(System.getProperty("db.pool", "true"))
+			? new PoolConnexionJDBC()
+			: new MaConnexionJDBC());
+	}
+
+    /**
+     * Constructeur avec une implémentation de connexion donnée.
+     */
+	public DatabaseManager(ConnexionJDBC connexionJDBC) {
+		this.connexionJDBC = connexionJDBC;
+		this.compteursDemandes = Boolean.getBoolean("db.compteurs");
+		this.tamponLectures = new TamponLectures(this);
+		this.annuaire = Boolean.parseBoolean(System.getProperty("db.annuaire", "true"))
+			? new UserDirectory(connexionJDBC)
+			: null;
 	}
 	
     /**
-     * Initialise la connexion à la base de données.
+     * Initialise la connexion à la base de données, puis applique les migrations
+     * du schéma manquantes (désactivable avec -Ddb.migrations=false)
+     * et charge l'annuaire des utilisateurs.
+     * Les statistiques ne lisent CompteursUtilisateurs que si la migration V3 est appliquée.
      */
+	@Override
 	public void initialiser() throws SQLException {
 		this.connexionJDBC.openConnection();
+
+		Connection connexion = this.connexionJDBC.emprunter();
+		try {
+			MigrationsSchema migrations = new MigrationsSchema(this.compteursDemandes);
+			if (Boolean.parseBoolean(System.getProperty("db.migrations", "true"))) {
+				migrations.appliquer(connexion);
+			}
+			this.compteursActives = migrations.compteursAppliques(connexion);
+		}
+		finally {
+			this.connexionJDBC.rendre(connexion);
+		}
+
+		if (this.annuaire != null) {
+			this.annuaire.rafraichir();
+		}
 	}
 	
     /**
      * Ajoute un nouvel utilisateur dans la base de données.
      */
+	@Override
 	public Boolean ajouterUtilisateur(Utilisateur user) {
 
 		String sql = "INSERT INTO Utilisateurs (nom_utilisateur, cle_publique, cle_privee) VALUES (?, ?, ?)";
 		
+		Connection connexion = null;
 		try {
+			connexion = this.connexionJDBC.emprunter();
+
             // Préparation de la requête
-			PreparedStatement pstmt = this.connexionJDBC.getConnection().prepareStatement(sql);
+			try (PreparedStatement pstmt = connexion.prepareStatement(sql)) {
 
-            // Bind des paramètres
-			pstmt.setString(1, user.getNomUtilisateur());
-            pstmt.setString(2, user.getClePublique());
-            pstmt.setString(3, user.getClePrivee());
+                // Bind des paramètres
+				pstmt.setString(1, user.getNomUtilisateur());
+                pstmt.setString(2, user.getClePublique());
+                pstmt.setString(3, user.getClePrivee());
             
-            // Exécution INSERT
-            int result = pstmt.executeUpdate();
-            pstmt.close();
+                // Exécution INSERT
+                int result = pstmt.executeUpdate();
 
-            // Retourne true si une ligne a été insérée
-            return result > 0;
+                // Le nouveau compte sera chargé à la prochaine consultation de l'annuaire
+                if (this.annuaire != null) {
+                    this.annuaire.invalider();
+                }
+
+                // Retourne true si une ligne a été insérée
+                return result > 0;
+			}
 		}
 		catch (SQLException e) {
             System.err.println("Erreur lors de l'ajout de l'utilisateur: " + e.getMessage());
             return false;
         }
+		finally {
+			this.connexionJDBC.rendre(connexion);
+		}
 	}
 	
     /**
-     * Récupère un utilisateur par son nom d'utilisateur.
+     * Récupère un utilisateur par son nom d'utilisateur (dans l'annuaire en mémoire s'il est activé).
      */
+	@Override
 	public Utilisateur getUtilisateur(String nomUtilisateur) {
 
+		if (this.annuaire != null) {
+			Utilisateur utilisateur = this.annuaire.parNom(nomUtilisateur);
+			if (utilisateur == null) {
+				System.out.println("Utilisateur '" + nomUtilisateur + "' introuvable!");
+			}
+			return utilisateur;
+		}
+
 	    String sql = "SELECT * FROM Utilisateurs WHERE nom_utilisateur = ?";
 	    
-	    try (PreparedStatement pstmt = this.connexionJDBC.getConnection().prepareStatement(sql)) {
+	    Connection connexion = null;
+	    try {
+	        connexion = this.connexionJDBC.emprunter();
 
-	        pstmt.setString(1, nomUtilisateur);
+	        try (PreparedStatement pstmt = connexion.prepareStatement(sql)) {
 
-	        try (ResultSet rs = pstmt.executeQuery()) {
+	            pstmt.setString(1, nomUtilisateur);
 
-	            // Si un utilisateur est trouvé → on construit l'objet Utilisateur
-	            if (rs.next()) {
-	                return new Utilisateur(
-	                    rs.getInt("id"),
-	                    rs.getString("nom_utilisateur"),
-	                    rs.getString("cle_publique"),
-	                    rs.getString("cle_privee")
-	                );
-	            } else {
-	                System.out.println("Utilisateur '" + nomUtilisateur + "' introuvable!");
+	            try (ResultSet rs = pstmt.executeQuery()) {
+
+	                // Si un utilisateur est trouvé → on construit l'objet Utilisateur
+	                if (rs.next()) {
+	                    return new Utilisateur(
+	                        rs.getInt("id"),
+	                        rs.getString("nom_utilisateur"),
+	                        rs.getString("cle_publique"),
+	                        rs.getString("cle_privee")
+	                    );
+	                } else {
+	                    System.out.println("Utilisateur '" + nomUtilisateur + "' introuvable!");
+	                }
 	            }
 	        }
 	    } catch (SQLException e) {
 	        System.err.println("Erreur lors de la récupération de l'utilisateur: " + e.getMessage());
+	    } finally {
+	        this.connexionJDBC.rendre(connexion);
 	    }
 	    
 	    return null;
 	}
 	
+    /**
+     * Récupère le chemin de la clé privée d'un utilisateur, toujours lu dans la base.
+     */
+	@Override
+	public String getClePrivee(int userId) {
+	    String sql = "SELECT cle_privee FROM Utilisateurs WHERE id = ?";
+
+	    Connection connexion = null;
+	    try {
+	        connexion = this.connexionJDBC.emprunter();
+
+	        try (PreparedStatement pstmt = connexion.prepareStatement(sql)) {
+	            pstmt.setInt(1, userId);
+	            try (ResultSet rs = pstmt.executeQuery()) {
+	                return rs.next() ? rs.getString("cle_privee") : null;
+	            }
+	        }
+	    } catch (SQLException e) {
+	        System.err.println("Erreur lors de la lecture de la clé privée: " + e.getMessage());
+	        return null;
+	    } finally {
+	        this.connexionJDBC.rendre(connexion);
+	    }
+	}
+
     /**
      * Retourne la liste complète des utilisateurs enregistrés dans la base.
      */
+	@Override
 	public ArrayList<Utilisateur> listerUtilisateurs() {
 
+		if (this.annuaire != null) {
+			return this.annuaire.lister();
+		}
+
 	    ArrayList<Utilisateur> utilisateurs = new ArrayList<>();
 	    String sql = "SELECT * FROM Utilisateurs ORDER BY nom_utilisateur";
 
-	    try (
-            PreparedStatement stmt = this.connexionJDBC.getConnection().prepareStatement(sql);
-	        ResultSet rs = stmt.executeQuery()
-        ) {
-
-	        while (rs.next()) {
-	            utilisateurs.add(new Utilisateur(
-	                rs.getInt("id"),
-	                rs.getString("nom_utilisateur"),
-	                rs.getString("cle_publique"),
-	                rs.getString("cle_privee")
-	            ));
+	    Connection connexion = null;
+	    try {
+	        connexion = this.connexionJDBC.emprunter();
+
+	        try (
+                PreparedStatement stmt = connexion.prepareStatement(sql);
+	            ResultSet rs = stmt.executeQuery()
+            ) {
+
+	            while (rs.next()) {
+	                utilisateurs.add(new Utilisateur(
+	                    rs.getInt("id"),
+	                    rs.getString("nom_utilisateur"),
+	                    rs.getString("cle_publique"),
+	                    rs.getString("cle_privee")
+	                ));
+	            }
 	        }
 
 	    } catch (SQLException e) {
 	        System.err.println("Erreur lors de la récupération des utilisateurs: " + e.getMessage());
+	    } finally {
+	        this.connexionJDBC.rendre(connexion);
 	    }
 
 	    return utilisateurs;
 	}
 	
+    /**
+     * Parcourt les utilisateurs par nom, en flux : une ligne à la fois (id et nom seulement),
+     * quelle que soit la taille de la table. Le traitement reçoit chaque utilisateur dès sa lecture.
+     */
+	@Override
+	public int parcourirUtilisateurs(Consumer<Utilisateur> traitement) {
+
+	    String sql = "SELECT id, nom_utilisateur FROM Utilisateurs ORDER BY nom_utilisateur";
+
+	    Connection connexion = null;
+	    try {
+	        connexion = this.connexionJDBC.emprunter();
+
+	        try (PreparedStatement pstmt = connexion.prepareStatement(sql,
+	                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+	            // Lecture en flux (MySQL) : la connexion reste occupée jusqu'à la dernière ligne
+	            pstmt.setFetchSize(Integer.MIN_VALUE);
+
+	            try (ResultSet rs = pstmt.executeQuery()) {
+	                int nombre = 0;
+	                while (rs.next()) {
+	                    traitement.accept(new Utilisateur(rs.getInt("id"), rs.getString("nom_utilisateur"), null, null));
+	                    nombre++;
+	                }
+	                return nombre;
+	            }
+	        }
+
+	    } catch (SQLException e) {
+	        System.err.println("Erreur lors de la récupération des utilisateurs: " + e.getMessage());
+	        return -1;
+	    } finally {
+	        this.connexionJDBC.rendre(connexion);
+	    }
+	}
+	
     /**
      * Insère un message chiffré dans la table Messages.
      */
+	@Override
 	public Boolean envoyerMessage(Message message) {
 
 		String sql = "INSERT INTO Messages (expediteur_id, destinataire_id, contenu_chiffre) VALUES (?, ?, ?)";
 		
+		Connection connexion = null;
 		try {
-            PreparedStatement pstmt = connexionJDBC.getConnection().prepareStatement(sql);
+            connexion = connexionJDBC.emprunter();
 
-            // Binding des valeurs dans la requête SQL
-            pstmt.setInt(1, message.getExpediteurId());
-            pstmt.setInt(2, message.getDestinataireId());
-            pstmt.setString(3, message.getContenuChiffre());
+            try (PreparedStatement pstmt = connexion.prepareStatement(sql)) {
             
-            int result = pstmt.executeUpdate();
-            pstmt.close();
+                // Binding des valeurs dans la requête SQL
+                pstmt.setInt(1, message.getExpediteurId());
+                pstmt.setInt(2, message.getDestinataireId());
+                pstmt.setString(3, message.getContenuChiffre());
+
+                int result = pstmt.executeUpdate();
 
-            return result > 0;
+                return result > 0;
+            }
             
         } catch (SQLException e) {
             System.err.println("Erreur lors de l'envoi du message: " + e.getMessage());
             return false;
+        } finally {
+            connexionJDBC.rendre(connexion);
         }
 
 	}
 	
+    /**
+     * Insère plusieurs messages chiffrés en un seul lot JDBC (une seule transaction).
+     * Les identifiants générés sont renseignés dans les objets Message.
+     * Retourne le nombre de messages insérés (0 en cas d'erreur, rien n'est alors inséré).
+     */
+	@Override
+	public int envoyerMessages(List<Message> messages) {
+
+		String sql = "INSERT INTO Messages (expediteur_id, destinataire_id, contenu_chiffre) VALUES (?, ?, ?)";
+
+		if (messages.isEmpty()) {
+			return 0;
+		}
+
+		Connection connexion = null;
+		try {
+			connexion = connexionJDBC.emprunter();
+			boolean autoCommit = connexion.getAutoCommit();
+			connexion.setAutoCommit(false);
+
+			try (PreparedStatement pstmt = connexion.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+				for (Message message : messages) {
+					pstmt.setInt(1, message.getExpediteurId());
+					pstmt.setInt(2, message.getDestinataireId());
+					pstmt.setString(3, message.getContenuChiffre());
+					pstmt.addBatch();
+				}
+
+				// Le driver regroupe le lot en INSERT multi-lignes (rewriteBatchedStatements)
+				pstmt.executeBatch();
+
+				// Une clé générée par ligne, dans l'ordre du lot
+				try (ResultSet cles = pstmt.getGeneratedKeys()) {
+					for (int i = 0; i < messages.size() && cles.next(); i++) {
+						messages.get(i).setId(cles.getInt(1));
+					}
+				}
+
+				connexion.commit();
+				return messages.size();
+			}
+			catch (SQLException e) {
+				connexion.rollback();
+				throw e;
+			}
+			finally {
+				connexion.setAutoCommit(autoCommit);
+			}
+		}
+		catch (SQLException e) {
+			System.err.println("Erreur lors de l'envoi groupé des messages: " + e.getMessage());
+			return 0;
+		}
+		finally {
+			connexionJDBC.rendre(connexion);
+		}
+	}
+
     /**
      * Récupère tous les messages reçus par un utilisateur donné.
+     * Le nom de l'expéditeur est obtenu par jointure, dans la même requête.
      */
+	@Override
 	public ArrayList<Message> getMessagesRecus(int userId) {
 
+        // Les lectures en attente doivent apparaître dans le résultat
+        tamponLectures.vider();
+
         ArrayList<Message> messages = new ArrayList<>();
-        String sql = "SELECT * FROM Messages WHERE destinataire_id = ? ORDER BY date_envoi DESC";
+        String sql = "SELECT m.*, u.nom_utilisateur AS nom_expediteur FROM Messages m "
+                + "LEFT JOIN Utilisateurs u ON u.id = m.expediteur_id "
+                + "WHERE m.destinataire_id = ? ORDER BY m.date_envoi DESC";
         
+        Connection connexion = null;
         try {
-            PreparedStatement pstmt = connexionJDBC.getConnection().prepareStatement(sql);
-            pstmt.setInt(1, userId);
+            connexion = connexionJDBC.emprunter();
 
-            ResultSet rs = pstmt.executeQuery();
+            try (PreparedStatement pstmt = connexion.prepareStatement(sql)) {
+                pstmt.setInt(1, userId);
             
-            // Construction des objets Message
-            while (rs.next()) {
-                Message msg = new Message(
-                    rs.getInt("id"),
-                    rs.getInt("expediteur_id"),
-                    rs.getInt("destinataire_id"),
-                    rs.getString("contenu_chiffre"),
-                    rs.getTimestamp("date_envoi"),
-                    rs.getBoolean("lu")
-                );
-                messages.add(msg);
+                try (ResultSet rs = pstmt.executeQuery()) {
+
+                    // Construction des objets Message
+                    while (rs.next()) {
+                        Message msg = new Message(
+                            rs.getInt("id"),
+                            rs.getInt("expediteur_id"),
+                            rs.getInt("destinataire_id"),
+                            rs.getString("contenu_chiffre"),
+                            rs.getTimestamp("date_envoi"),
+                            rs.getBoolean("lu")
+                        );
+                        msg.setNomExpediteur(rs.getString("nom_expediteur"));
+                        messages.add(msg);
+                    }
+                }
             }
             
-            rs.close();
-            pstmt.close();
-            
         } catch (SQLException e) {
             System.err.println("Erreur lors de la récupération des messages: " + e.getMessage());
+        } finally {
+            connexionJDBC.rendre(connexion);
         }
         
         return messages;
     }
     
+    /**
+     * Récupère une page d'en-têtes de messages reçus (sans le contenu chiffré), du plus récent au plus ancien.
+     * Pagination par clé : la page suivante commence après le dernier message de la précédente
+     * (apresDate = null pour la première page), sans OFFSET à parcourir côté serveur.
+     */
+	@Override
+	public ArrayList<Message> getMessagesRecus(int userId, Timestamp apresDate, int apresId, int limite) {
+
+        tamponLectures.vider();
+
+        ArrayList<Message> messages = new ArrayList<>();
+        String sql = "SELECT m.id, m.expediteur_id, m.destinataire_id, m.date_envoi, m.lu, "
+                + "u.nom_utilisateur AS nom_expediteur FROM Messages m "
+                + "LEFT JOIN Utilisateurs u ON u.id = m.expediteur_id "
+                + "WHERE m.destinataire_id = ? "
+                + (apresDate != null ? "AND (m.date_envoi < ? OR (m.date_envoi = ? AND m.id < ?)) " : "")
+                + "ORDER BY m.date_envoi DESC, m.id DESC LIMIT ?";
+
+        Connection connexion = null;
+        try {
+            connexion = connexionJDBC.emprunter();
+
+            try (PreparedStatement pstmt = connexion.prepareStatement(sql)) {
+                int index = 1;
+                pstmt.setInt(index++, userId);
+                if (apresDate != null) {
+                    pstmt.setTimestamp(index++, apresDate);
+                    pstmt.setTimestamp(index++, apresDate);
+                    pstmt.setInt(index++, apresId);
+                }
+                pstmt.setInt(index, limite);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+
+                    // En-têtes seulement : le contenu est chargé à l'ouverture (getContenuChiffre)
+                    while (rs.next()) {
+                        Message msg = new Message(
+                            rs.getInt("id"),
+                            rs.getInt("expediteur_id"),
+                            rs.getInt("destinataire_id"),
+                            null,
+                            rs.getTimestamp("date_envoi"),
+                            rs.getBoolean("lu")
+                        );
+                        msg.setNomExpediteur(rs.getString("nom_expediteur"));
+                        messages.add(msg);
+                    }
+                }
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la récupération des messages: " + e.getMessage());
+        } finally {
+            connexionJDBC.rendre(connexion);
+        }
+
+        return messages;
+    }
+
+    /**
+     * Récupère au plus limite messages non lus (avec leur contenu chiffré), du plus récent au plus ancien.
+     * Filtrage et limite côté serveur (index idx_messages_destinataire_lu) : les messages déjà lus ne sont pas transférés.
+     */
+    @Override
+    public ArrayList<Message> getMessagesNonLus(int userId, int limite) {
+
+        // Les lectures en attente ne doivent plus apparaître comme non lues
+        tamponLectures.vider();
+
+        ArrayList<Message> messages = new ArrayList<>();
+        String sql = "SELECT m.*, u.nom_utilisateur AS nom_expediteur FROM Messages m "
+                + "LEFT JOIN Utilisateurs u ON u.id = m.expediteur_id "
+                + "WHERE m.destinataire_id = ? AND m.lu = FALSE "
+                + "ORDER BY m.date_envoi DESC, m.id DESC LIMIT ?";
+
+        Connection connexion = null;
+        try {
+            connexion = connexionJDBC.emprunter();
+
+            try (PreparedStatement pstmt = connexion.prepareStatement(sql)) {
+                pstmt.setInt(1, userId);
+                pstmt.setInt(2, limite);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        Message msg = new Message(
+                            rs.getInt("id"),
+                            rs.getInt("expediteur_id"),
+                            rs.getInt("destinataire_id"),
+                            rs.getString("contenu_chiffre"),
+                            rs.getTimestamp("date_envoi"),
+                            rs.getBoolean("lu")
+                        );
+                        msg.setNomExpediteur(rs.getString("nom_expediteur"));
+                        messages.add(msg);
+                    }
+                }
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la récupération des messages non lus: " + e.getMessage());
+        } finally {
+            connexionJDBC.rendre(connexion);
+        }
+
+        return messages;
+    }
+
+    /**
+     * Récupère le contenu chiffré d'un message reçu par l'utilisateur donné
+     * (null s'il est introuvable ou destiné à un autre utilisateur).
+     */
+    @Override
+    public String getContenuChiffre(int messageId, int destinataireId) {
+
+        String sql = "SELECT contenu_chiffre FROM Messages WHERE id = ? AND destinataire_id = ?";
+
+        Connection connexion = null;
+        try {
+            connexion = connexionJDBC.emprunter();
+
+            try (PreparedStatement pstmt = connexion.prepareStatement(sql)) {
+                pstmt.setInt(1, messageId);
+                pstmt.setInt(2, destinataireId);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        return rs.getString("contenu_chiffre");
+                    }
+                }
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la récupération du message: " + e.getMessage());
+        } finally {
+            connexionJDBC.rendre(connexion);
+        }
+
+        return null;
+    }
+
     /**
      * Marque un message comme lu dans la base.
      */
+    @Override
     public void marquerCommeLu(int messageId) {
 
         String sql = "UPDATE Messages SET lu = TRUE WHERE id = ?";
         
+        Connection connexion = null;
         try {
-            PreparedStatement pstmt = connexionJDBC.getConnection().prepareStatement(sql);
-            pstmt.setInt(1, messageId);
-            pstmt.executeUpdate();
-            pstmt.close();
+            connexion = connexionJDBC.emprunter();
+
+            try (PreparedStatement pstmt = connexion.prepareStatement(sql)) {
+                pstmt.setInt(1, messageId);
+                pstmt.executeUpdate();
+            }
             
         } catch (SQLException e) {
             System.err.println("Erreur lors de la mise à jour du message: " + e.getMessage());
+        } finally {
+            connexionJDBC.rendre(connexion);
         }
     }
+
+    /**
+     * Signale la lecture d'un message : l'écriture est différée et groupée avec les suivantes
+     * (voir TamponLectures), sans aller-retour avec la base à chaque ouverture.
+     */
+    @Override
+    public void signalerLecture(int messageId) {
+        tamponLectures.ajouter(messageId);
+    }
+
+    /**
+     * Marque plusieurs messages comme lus, par lots de UPDATE ... WHERE id IN (...).
+     */
+    @Override
+    public Boolean marquerCommeLus(Collection<Integer> messageIds) {
+
+        List<Integer> ids = new ArrayList<>(messageIds);
+
+        Connection connexion = null;
+        try {
+            connexion = connexionJDBC.emprunter();
+
+            for (int debut = 0; debut < ids.size(); debut += TAILLE_LOT_LECTURES) {
+                List<Integer> lot = ids.subList(debut, Math.min(debut + TAILLE_LOT_LECTURES, ids.size()));
+                String sql = "UPDATE Messages SET lu = TRUE WHERE lu = FALSE AND id IN ("
+                        + String.join(", ", Collections.nCopies(lot.size(), "?")) + ")";
+
+                try (PreparedStatement pstmt = connexion.prepareStatement(sql)) {
+                    for (int i = 0; i < lot.size(); i++) {
+                        pstmt.setInt(i + 1, lot.get(i));
+                    }
+                    pstmt.executeUpdate();
+                }
+            }
+            return true;
+
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la mise à jour des messages: " + e.getMessage());
+            return false;
+        } finally {
+            connexionJDBC.rendre(connexion);
+        }
+    }
+
+    /**
+     * Marque tous les messages reçus par un utilisateur comme lus.
+     * Retourne le nombre de messages passés à "lu" (-1 en cas d'erreur).
+     */
+    @Override
+    public int marquerToutCommeLu(int userId) {
+
+        String sql = "UPDATE Messages SET lu = TRUE WHERE destinataire_id = ? AND lu = FALSE";
+
+        Connection connexion = null;
+        try {
+            connexion = connexionJDBC.emprunter();
+
+            try (PreparedStatement pstmt = connexion.prepareStatement(sql)) {
+                pstmt.setInt(1, userId);
+                return pstmt.executeUpdate();
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la mise à jour des messages: " + e.getMessage());
+            return -1;
+        } finally {
+            connexionJDBC.rendre(connexion);
+        }
+    }
+
+    /**
+     * Calcule les statistiques d'un utilisateur par agrégats SQL (aucun message n'est chargé).
+     * Si les compteurs sont activés (-Ddb.compteurs=true), les totaux sont lus en O(1)
+     * dans la table CompteursUtilisateurs, tenue à jour par triggers à l'envoi et à la lecture.
+     */
+    @Override
+    public Statistiques getStatistiques(int userId) {
+
+        tamponLectures.vider();
+
+        String sqlCompteurs = "SELECT messages_recus, messages_lus, messages_envoyes "
+                + "FROM CompteursUtilisateurs WHERE utilisateur_id = ?";
+        String sqlAgregats = "SELECT "
+                + "(SELECT COUNT(*) FROM Messages WHERE destinataire_id = ?) AS messages_recus, "
+                + "(SELECT COALESCE(SUM(lu), 0) FROM Messages WHERE destinataire_id = ?) AS messages_lus, "
+                + "(SELECT COUNT(*) FROM Messages WHERE expediteur_id = ?) AS messages_envoyes";
+        String sqlCorrespondants = "SELECT u.nom_utilisateur, c.nombre FROM ("
+                + "SELECT correspondant_id, COUNT(*) AS nombre FROM ("
+                + "SELECT expediteur_id AS correspondant_id FROM Messages WHERE destinataire_id = ? "
+                + "UNION ALL SELECT destinataire_id FROM Messages WHERE expediteur_id = ?"
+                + ") echanges GROUP BY correspondant_id ORDER BY nombre DESC LIMIT ?"
+                + ") c JOIN Utilisateurs u ON u.id = c.correspondant_id ORDER BY c.nombre DESC, u.nom_utilisateur";
+        String sqlVolume = "SELECT DATE(date_envoi) AS jour, COUNT(*) AS nombre FROM Messages "
+                + "WHERE destinataire_id = ? AND date_envoi >= CURRENT_DATE - INTERVAL ? DAY "
+                + "GROUP BY DATE(date_envoi) ORDER BY jour";
+
+        Connection connexion = null;
+        try {
+            connexion = connexionJDBC.emprunter();
+            Statistiques statistiques = null;
+
+            // Totaux : table de compteurs si activée, sinon agrégats
+            if (compteursActives) {
+                try (PreparedStatement pstmt = connexion.prepareStatement(sqlCompteurs)) {
+                    pstmt.setInt(1, userId);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        statistiques = rs.next() ? lireTotaux(rs) : new Statistiques(0, 0, 0);
+                    }
+                }
+            } else {
+                try (PreparedStatement pstmt = connexion.prepareStatement(sqlAgregats)) {
+                    pstmt.setInt(1, userId);
+                    pstmt.setInt(2, userId);
+                    pstmt.setInt(3, userId);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        rs.next();
+                        statistiques = lireTotaux(rs);
+                    }
+                }
+            }
+
+            // Principaux correspondants (messages reçus et envoyés confondus)
+            Map<String, Integer> correspondants = new LinkedHashMap<>();
+            try (PreparedStatement pstmt = connexion.prepareStatement(sqlCorrespondants)) {
+                pstmt.setInt(1, userId);
+                pstmt.setInt(2, userId);
+                pstmt.setInt(3, NOMBRE_CORRESPONDANTS);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        correspondants.put(rs.getString("nom_utilisateur"), rs.getInt("nombre"));
+                    }
+                }
+            }
+            statistiques.setCorrespondants(correspondants);
+
+            // Messages reçus par jour sur la période récente
+            Map<LocalDate, Integer> volumeParJour = new LinkedHashMap<>();
+            try (PreparedStatement pstmt = connexion.prepareStatement(sqlVolume)) {
+                pstmt.setInt(1, userId);
+                pstmt.setInt(2, JOURS_VOLUME - 1);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        volumeParJour.put(rs.getDate("jour").toLocalDate(), rs.getInt("nombre"));
+                    }
+                }
+            }
+            statistiques.setVolumeParJour(volumeParJour);
+
+            return statistiques;
+
+        } catch (SQLException e) {
+            System.err.println("Erreur lors du calcul des statistiques: " + e.getMessage());
+            return null;
+        } finally {
+            connexionJDBC.rendre(connexion);
+        }
+    }
+
+    private static Statistiques lireTotaux(ResultSet rs) throws SQLException {
+        return new Statistiques(
+            rs.getInt("messages_recus"),
+            rs.getInt("messages_lus"),
+            rs.getInt("messages_envoyes")
+        );
+    }
+
+    public boolean isCompteursActives() {
+        return this.compteursActives;
+    }
+
+    /**
+     * Retourne l'implémentation de connexion utilisée (ex: pour consulter l'état du pool).
+     */
+    public ConnexionJDBC getConnexionJDBC() {
+        return this.connexionJDBC;
+    }
+
+    /**
+     * Retourne l'annuaire des utilisateurs (null s'il est désactivé).
+     */
+    public UserDirectory getAnnuaire() {
+        return this.annuaire;
+    }
     
     /**
-     * Ferme la connexion JDBC proprement.
+     * Écrit les accusés de lecture en attente puis ferme la connexion JDBC proprement.
      */
+    @Override
     public void fermer() throws SQLException {
+        tamponLectures.fermer();
         connexionJDBC.closeConnection();
     }
 
@@ -0,0 +1,325 @@
+package services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Journal des messages sur disque, en ajout seul, découpé en segments projetés en mémoire (MappedByteBuffer)
+ * Format d'un enregistrement (entiers big-endian) :
+ *   taille (int, en-tête compris) | état (byte : lu, supprimé) | id | expéditeur | destinataire (int)
+ *   | date d'envoi (long, ms) | contenu chiffré (octets UTF-8)
+ * La taille est écrite en dernier : un enregistrement interrompu (taille 0) marque la fin du segment
+ * L'état est modifié sur place ; un segment plein est scellé et le suivant est créé (segment-000001.log, ...)
+ * compacter() réécrit les segments scellés sans les messages supprimés
+ * Les contenus sont rendus comme des vues sur le fichier projeté, décodées seulement à la demande
+ * Non synchronisé : l'appelant sérialise les écritures, et exclut toute lecture pendant supprimer()
+ * et compacter(), qui déplacent les enregistrements (voir MemoireMessageStore.supprimerMessage et compacter)
+ */
+public class JournalMessages {
+	public static final int TAILLE_SEGMENT_DEFAUT = 64 * 1024 * 1024;
+
+	// Décalages dans un enregistrement
+	private static final int TAILLE = 0;
+	private static final int ETAT = 4;
+	private static final int ID = 5;
+	private static final int EXPEDITEUR = 9;
+	private static final int DESTINATAIRE = 13;
+	private static final int DATE = 17;
+	private static final int ENTETE = 25;
+
+	// Bits de l'état
+	private static final byte LU = 1;
+	private static final byte SUPPRIME = 2;
+
+	/**
+	 * Reçoit les en-têtes des messages lors de la relecture du journal, par identifiant croissant
+	 */
+	@FunctionalInterface
+	public interface Visiteur {
+		void message(int id, int expediteurId, int destinataireId, long dateEnvoi, boolean lu);
+	}
+
+	/**
+	 * Fichier de segment et sa projection
+	 */
+	private static final class Segment {
+		private final Path chemin;
+		private MappedByteBuffer tampon;
+		// Fin des données écrites, et octets occupés par des messages supprimés
+		private int fin;
+		private int morts;
+
+		private Segment(Path chemin) {
+			this.chemin = chemin;
+		}
+	}
+
+	private final Path repertoire;
+	private final int tailleSegment;
+	private final List<Segment> segments = new ArrayList<>();
+	// Adresse de chaque message par identifiant - 1 : (numéro de segment << 32) | position, -1 si absent
+	private long[] adresses = new long[1024];
+	private int idMax;
+
+	public JournalMessages(Path repertoire) {
+		this(repertoire, TAILLE_SEGMENT_DEFAUT);
+	}
+
+	public JournalMessages(Path repertoire, int tailleSegment) {
+		this.repertoire = repertoire;
+		this.tailleSegment = tailleSegment;
+		Arrays.fill(adresses, -1);
+	}
+
+	/**
+	 * Ouvre (ou crée) les segments du répertoire et présente chaque message non supprimé au visiteur
+	 */
+	public void ouvrir(Visiteur visiteur) throws IOException {
+		Files.createDirectories(repertoire);
+		List<Path> fichiers;
+		try (Stream<Path> liste = Files.list(repertoire)) {
+			fichiers = liste
+				.filter(chemin -> chemin.getFileName().toString().matches("segment-\\d{6}\\.log"))
+				.sorted()
+				.toList();
+		}
+
+		for (int numero = 0; numero < fichiers.size(); numero++) {
+			Path attendu = cheminSegment(numero);
+			if (!fichiers.get(numero).equals(attendu)) {
+				throw new IOException("Segment manquant: " + attendu);
+			}
+			Segment segment = new Segment(attendu);
+			segment.tampon = projeter(attendu, Files.size(attendu));
+			segments.add(segment);
+			relire(numero, segment, visiteur);
+		}
+		if (segments.isEmpty()) {
+			nouveauSegment(tailleSegment);
+		}
+	}
+
+	/**
+	 * Ajoute un message à la fin du segment courant, en changeant de segment s'il est plein
+	 */
+	public void ajouter(int id, int expediteurId, int destinataireId, long dateEnvoi, byte[] contenu)
+			throws IOException {
+		int taille = ENTETE + contenu.length;
+		Segment segment = segments.get(segments.size() - 1);
+		if (segment.fin + taille > segment.tampon.capacity()) {
+			segment = nouveauSegment(Math.max(tailleSegment, taille));
+		}
+
+		MappedByteBuffer tampon = segment.tampon;
+		int position = segment.fin;
+		tampon.put(position + ETAT, (byte) 0);
+		tampon.putInt(position + ID, id);
+		tampon.putInt(position + EXPEDITEUR, expediteurId);
+		tampon.putInt(position + DESTINATAIRE, destinataireId);
+		tampon.putLong(position + DATE, dateEnvoi);
+		tampon.put(position + ENTETE, contenu);
+		// En dernier : l'enregistrement devient visible à la relecture
+		tampon.putInt(position + TAILLE, taille);
+
+		segment.fin += taille;
+		indexer(id, segments.size() - 1, position);
+	}
+
+	/**
+	 * Marque un message comme lu, sur place
+	 */
+	public void marquerLu(int id) {
+		modifierEtat(id, LU);
+	}
+
+	/**
+	 * Supprime logiquement un message ; sa place est récupérée par compacter()
+	 */
+	public void supprimer(int id) {
+		long adresse = adresse(id);
+		if (adresse < 0) {
+			return;
+		}
+		Segment segment = segments.get((int) (adresse >>> 32));
+		segment.morts += segment.tampon.getInt((int) adresse + TAILLE);
+		modifierEtat(id, SUPPRIME);
+		adresses[id - 1] = -1;
+	}
+
+	/**
+	 * Vue en lecture seule sur le contenu chiffré (UTF-8) d'un message, sans copie ; null s'il est absent
+	 * La vue reste valable après une compaction (elle désigne l'ancienne projection)
+	 */
+	public ByteBuffer contenu(int id) {
+		long adresse = adresse(id);
+		if (adresse < 0) {
+			return null;
+		}
+		MappedByteBuffer tampon = segments.get((int) (adresse >>> 32)).tampon;
+		int position = (int) adresse;
+		int taille = tampon.getInt(position + TAILLE);
+		return tampon.slice(position + ENTETE, taille - ENTETE).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Contenu chiffré décodé en chaîne, au moment où il est nécessaire (déchiffrement)
+	 */
+	public String lireContenu(int id) {
+		ByteBuffer vue = contenu(id);
+		return vue == null ? null : StandardCharsets.UTF_8.decode(vue).toString();
+	}
+
+	/**
+	 * Réécrit les segments scellés contenant des messages supprimés ; retourne le nombre d'octets récupérés
+	 */
+	public long compacter() throws IOException {
+		long recuperes = 0;
+		// Le dernier segment reçoit les ajouts : il n'est pas compacté
+		for (int numero = 0; numero < segments.size() - 1; numero++) {
+			Segment segment = segments.get(numero);
+			if (segment.morts == 0) {
+				continue;
+			}
+
+			int vivants = segment.fin - segment.morts;
+			Path temporaire = segment.chemin.resolveSibling(segment.chemin.getFileName() + ".compact");
+			MappedByteBuffer nouveau = projeter(temporaire, vivants);
+			int ecrits = 0;
+			List<int[]> deplaces = new ArrayList<>();
+			for (int position = 0; position < segment.fin; ) {
+				int taille = segment.tampon.getInt(position + TAILLE);
+				if ((segment.tampon.get(position + ETAT) & SUPPRIME) == 0) {
+					nouveau.put(ecrits, segment.tampon, position, taille);
+					deplaces.add(new int[] { segment.tampon.getInt(position + ID), ecrits });
+					ecrits += taille;
+				}
+				position += taille;
+			}
+			nouveau.force();
+			Files.move(temporaire, segment.chemin, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+			segment.tampon = nouveau;
+			recuperes += segment.fin - ecrits;
+			segment.fin = ecrits;
+			segment.morts = 0;
+			for (int[] deplace : deplaces) {
+				indexer(deplace[0], numero, deplace[1]);
+			}
+		}
+		return recuperes;
+	}
+
+	/**
+	 * Octets occupés par des messages supprimés, récupérables par compacter()
+	 */
+	public long getOctetsMorts() {
+		long morts = 0;
+		for (Segment segment : segments) {
+			morts += segment.morts;
+		}
+		return morts;
+	}
+
+	public int getNombreSegments() {
+		return segments.size();
+	}
+
+	/**
+	 * Écrit sur disque les pages modifiées de tous les segments
+	 */
+	public void forcer() {
+		for (Segment segment : segments) {
+			segment.tampon.force();
+		}
+	}
+
+	/**
+	 * Écrit les pages modifiées ; les projections sont libérées par le ramasse-miettes
+	 */
+	public void fermer() {
+		forcer();
+		segments.clear();
+	}
+
+	/**
+	 * Parcourt les enregistrements d'un segment ouvert et reconstruit l'index
+	 */
+	private void relire(int numero, Segment segment, Visiteur visiteur) {
+		MappedByteBuffer tampon = segment.tampon;
+		int position = 0;
+		while (position + ENTETE <= tampon.capacity()) {
+			int taille = tampon.getInt(position + TAILLE);
+			if (taille < ENTETE || position + taille > tampon.capacity()) {
+				break;
+			}
+			byte etat = tampon.get(position + ETAT);
+			if ((etat & SUPPRIME) != 0) {
+				segment.morts += taille;
+			} else {
+				int id = tampon.getInt(position + ID);
+				indexer(id, numero, position);
+				visiteur.message(id, tampon.getInt(position + EXPEDITEUR), tampon.getInt(position + DESTINATAIRE),
+					tampon.getLong(position + DATE), (etat & LU) != 0);
+			}
+			position += taille;
+		}
+		segment.fin = position;
+	}
+
+	private Segment nouveauSegment(int taille) throws IOException {
+		Segment segment = new Segment(cheminSegment(segments.size()));
+		segment.tampon = projeter(segment.chemin, taille);
+		segments.add(segment);
+		return segment;
+	}
+
+	private Path cheminSegment(int numero) {
+		return repertoire.resolve(String.format("segment-%06d.log", numero));
+	}
+
+	/**
+	 * Projette un fichier en lecture/écriture, en le créant à la taille donnée si besoin
+	 */
+	private static MappedByteBuffer projeter(Path chemin, long taille) throws IOException {
+		try (FileChannel canal = FileChannel.open(chemin,
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			// La projection reste valable après la fermeture du canal
+			return canal.map(FileChannel.MapMode.READ_WRITE, 0, taille);
+		}
+	}
+
+	private void modifierEtat(int id, byte bit) {
+		long adresse = adresse(id);
+		if (adresse < 0) {
+			return;
+		}
+		MappedByteBuffer tampon = segments.get((int) (adresse >>> 32)).tampon;
+		int position = (int) adresse + ETAT;
+		tampon.put(position, (byte) (tampon.get(position) | bit));
+	}
+
+	private void indexer(int id, int numero, int position) {
+		if (id > adresses.length) {
+			int ancienne = adresses.length;
+			adresses = Arrays.copyOf(adresses, Math.max(id, ancienne * 2));
+			Arrays.fill(adresses, ancienne, adresses.length, -1);
+		}
+		adresses[id - 1] = ((long) numero << 32) | position;
+		idMax = Math.max(idMax, id);
+	}
+
+	private long adresse(int id) {
+		return id >= 1 && id <= idMax ? adresses[id - 1] : -1;
+	}
+}
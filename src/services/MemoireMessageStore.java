@@ -0,0 +1,715 @@
+package services;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import models.Message;
+import models.Statistiques;
+import models.Utilisateur;
+
+/**
+ * Stockage embarqué, entièrement en mémoire : aucun serveur ni aller-retour réseau
+ * Les messages forment un journal en ajout seul, rangé par colonnes de types primitifs
+ * (l'identifiant d'un message est sa position + 1) ; chaque utilisateur a la liste
+ * des positions de ses messages reçus et envoyés, dans l'ordre d'envoi
+ * Les dates d'envoi ne décroissent jamais : la boîte de réception se lit à l'envers de sa liste
+ * Les totaux des statistiques sont tenus à jour à chaque écriture
+ * Un message supprimé garde sa position (destinataire 0) et disparaît des index et des totaux
+ * Lectures concurrentes, écritures exclusives (verrou lecture/écriture)
+ *
+ * Avec un répertoire (-Ddb.journal=...), les messages sont aussi écrits dans un JournalMessages
+ * projeté en mémoire et les utilisateurs dans utilisateurs.dat ; les index sont reconstruits
+ * à l'ouverture et les contenus chiffrés ne sont lus (et décodés) qu'à la demande
+ */
+public class MemoireMessageStore implements MessageStore {
+	// Nombre de correspondants et de jours retenus dans les statistiques (comme DatabaseManager)
+	private static final int NOMBRE_CORRESPONDANTS = 5;
+	private static final int JOURS_VOLUME = 7;
+	// Capacité initiale du journal et des listes
+	private static final int CAPACITE_INITIALE = 1024;
+	// Positions dans les totaux par utilisateur
+	private static final int RECUS = 0;
+	private static final int LUS = 1;
+	private static final int ENVOYES = 2;
+
+	/**
+	 * Liste d'entiers extensible, sans objet Integer par élément
+	 */
+	private static final class ListeEntiers {
+		private int[] valeurs = new int[8];
+		private int taille;
+
+		private void ajouter(int valeur) {
+			if (taille == valeurs.length) {
+				valeurs = Arrays.copyOf(valeurs, taille * 2);
+			}
+			valeurs[taille++] = valeur;
+		}
+
+		/**
+		 * Retire une valeur de la liste (triée par ordre croissant)
+		 */
+		private void retirer(int valeur) {
+			int index = Arrays.binarySearch(valeurs, 0, taille, valeur);
+			if (index >= 0) {
+				System.arraycopy(valeurs, index + 1, valeurs, index, taille - index - 1);
+				taille--;
+			}
+		}
+	}
+
+	// Fichier des utilisateurs dans le répertoire du journal
+	private static final String FICHIER_UTILISATEURS = "utilisateurs.dat";
+
+	private final ReadWriteLock verrou = new ReentrantReadWriteLock();
+
+	// Utilisateurs : par nom, et par identifiant (position + 1)
+	private final Map<String, Utilisateur> utilisateursParNom = new HashMap<>();
+	private final List<Utilisateur> utilisateurs = new ArrayList<>();
+	// Index par identifiant d'utilisateur (position + 1)
+	private final List<ListeEntiers> recusParUtilisateur = new ArrayList<>();
+	private final List<ListeEntiers> envoyesParUtilisateur = new ArrayList<>();
+	private final List<int[]> totauxParUtilisateur = new ArrayList<>();
+
+	// Journal des messages, une colonne par champ
+	private int nombreMessages;
+	private int[] expediteurs = new int[CAPACITE_INITIALE];
+	private int[] destinataires = new int[CAPACITE_INITIALE];
+	private long[] dates = new long[CAPACITE_INITIALE];
+	private boolean[] lus = new boolean[CAPACITE_INITIALE];
+	private String[] contenus = new String[CAPACITE_INITIALE];
+	private long derniereDate;
+
+	// Persistance (null : contenu perdu à l'arrêt)
+	private final Path repertoire;
+	private JournalMessages journal;
+	private DataOutputStream fichierUtilisateurs;
+
+	/**
+	 * Stockage volatil
+	 */
+	public MemoireMessageStore() {
+		this(null);
+	}
+
+	/**
+	 * Stockage persistant dans le répertoire donné (créé si besoin)
+	 */
+	public MemoireMessageStore(Path repertoire) {
+		this.repertoire = repertoire;
+	}
+
+	/**
+	 * Relit les utilisateurs et le journal des messages du répertoire, s'il y en a un
+	 */
+	@Override
+	public void initialiser() throws SQLException {
+		if (repertoire == null) {
+			return;
+		}
+		verrou.writeLock().lock();
+		try {
+			Files.createDirectories(repertoire);
+			Path cheminUtilisateurs = repertoire.resolve(FICHIER_UTILISATEURS);
+			if (Files.exists(cheminUtilisateurs)) {
+				relireUtilisateurs(cheminUtilisateurs);
+			}
+
+			journal = new JournalMessages(repertoire);
+			journal.ouvrir(this::restaurer);
+
+			fichierUtilisateurs = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+				cheminUtilisateurs, StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+		} catch (IOException e) {
+			throw new SQLException("Ouverture du journal impossible: " + e.getMessage(), e);
+		} finally {
+			verrou.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public Boolean ajouterUtilisateur(Utilisateur user) {
+		verrou.writeLock().lock();
+		try {
+			if (utilisateursParNom.containsKey(user.getNomUtilisateur())) {
+				System.err.println("Erreur lors de l'ajout de l'utilisateur: nom déjà utilisé");
+				return false;
+			}
+			Utilisateur enregistre = new Utilisateur(utilisateurs.size() + 1,
+				user.getNomUtilisateur(), user.getClePublique(), user.getClePrivee());
+			if (fichierUtilisateurs != null) {
+				ecrireUtilisateur(enregistre);
+			}
+			utilisateurs.add(enregistre);
+			utilisateursParNom.put(enregistre.getNomUtilisateur(), enregistre);
+			recusParUtilisateur.add(new ListeEntiers());
+			envoyesParUtilisateur.add(new ListeEntiers());
+			totauxParUtilisateur.add(new int[3]);
+			return true;
+		} catch (IOException e) {
+			System.err.println("Erreur lors de l'ajout de l'utilisateur: " + e.getMessage());
+			return false;
+		} finally {
+			verrou.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public Utilisateur getUtilisateur(String nomUtilisateur) {
+		verrou.readLock().lock();
+		try {
+			Utilisateur utilisateur = utilisateursParNom.get(nomUtilisateur);
+			if (utilisateur == null) {
+				System.out.println("Utilisateur '" + nomUtilisateur + "' introuvable!");
+				return null;
+			}
+			return copier(utilisateur);
+		} finally {
+			verrou.readLock().unlock();
+		}
+	}
+
+	@Override
+	public String getClePrivee(int userId) {
+		verrou.readLock().lock();
+		try {
+			return existe(userId) ? utilisateurs.get(userId - 1).getClePrivee() : null;
+		} finally {
+			verrou.readLock().unlock();
+		}
+	}
+
+	@Override
+	public ArrayList<Utilisateur> listerUtilisateurs() {
+		ArrayList<Utilisateur> liste = new ArrayList<>();
+		verrou.readLock().lock();
+		try {
+			for (Utilisateur utilisateur : utilisateurs) {
+				liste.add(copier(utilisateur));
+			}
+		} finally {
+			verrou.readLock().unlock();
+		}
+		liste.sort(Comparator.comparing(Utilisateur::getNomUtilisateur));
+		return liste;
+	}
+
+	@Override
+	public int parcourirUtilisateurs(Consumer<Utilisateur> traitement) {
+		List<Utilisateur> tries;
+		verrou.readLock().lock();
+		try {
+			tries = new ArrayList<>(utilisateurs);
+		} finally {
+			verrou.readLock().unlock();
+		}
+		tries.sort(Comparator.comparing(Utilisateur::getNomUtilisateur));
+		for (Utilisateur utilisateur : tries) {
+			traitement.accept(new Utilisateur(utilisateur.getId(), utilisateur.getNomUtilisateur(), null, null));
+		}
+		return tries.size();
+	}
+
+	@Override
+	public Boolean envoyerMessage(Message message) {
+		return envoyerMessages(List.of(message)) == 1;
+	}
+
+	@Override
+	public int envoyerMessages(List<Message> messages) {
+		verrou.writeLock().lock();
+		try {
+			// Tout ou rien, comme la transaction de DatabaseManager
+			for (Message message : messages) {
+				if (!existe(message.getExpediteurId()) || !existe(message.getDestinataireId())) {
+					System.err.println("Erreur lors de l'envoi des messages: utilisateur inconnu");
+					return 0;
+				}
+			}
+
+			for (Message message : messages) {
+				int position = ajouterAuJournal(message);
+				message.setId(position + 1);
+				message.setDateEnvoi(new Timestamp(dates[position]));
+				message.setLu(false);
+			}
+			return messages.size();
+		} catch (IOException e) {
+			System.err.println("Erreur lors de l'envoi des messages: " + e.getMessage());
+			return 0;
+		} finally {
+			verrou.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public ArrayList<Message> getMessagesRecus(int userId) {
+		ArrayList<Message> messages = new ArrayList<>();
+		verrou.readLock().lock();
+		try {
+			if (!existe(userId)) {
+				return messages;
+			}
+			ListeEntiers recus = recusParUtilisateur.get(userId - 1);
+			for (int i = recus.taille - 1; i >= 0; i--) {
+				messages.add(lire(recus.valeurs[i], true));
+			}
+		} finally {
+			verrou.readLock().unlock();
+		}
+		return messages;
+	}
+
+	@Override
+	public ArrayList<Message> getMessagesRecus(int userId, Timestamp apresDate, int apresId, int limite) {
+		ArrayList<Message> messages = new ArrayList<>();
+		verrou.readLock().lock();
+		try {
+			if (!existe(userId)) {
+				return messages;
+			}
+			ListeEntiers recus = recusParUtilisateur.get(userId - 1);
+
+			// Les positions sont croissantes : recherche du dernier message avant le curseur
+			int debut = recus.taille - 1;
+			if (apresDate != null) {
+				int index = Arrays.binarySearch(recus.valeurs, 0, recus.taille, apresId - 1);
+				debut = (index >= 0 ? index : -index - 1) - 1;
+			}
+
+			long curseur = apresDate != null ? apresDate.getTime() : Long.MAX_VALUE;
+			for (int i = debut; i >= 0 && messages.size() < limite; i--) {
+				int position = recus.valeurs[i];
+				if (dates[position] <= curseur) {
+					messages.add(lire(position, false));
+				}
+			}
+		} finally {
+			verrou.readLock().unlock();
+		}
+		return messages;
+	}
+
+	@Override
+	public ArrayList<Message> getMessagesNonLus(int userId, int limite) {
+		ArrayList<Message> messages = new ArrayList<>();
+		verrou.readLock().lock();
+		try {
+			if (!existe(userId)) {
+				return messages;
+			}
+			ListeEntiers recus = recusParUtilisateur.get(userId - 1);
+			for (int i = recus.taille - 1; i >= 0 && messages.size() < limite; i--) {
+				int position = recus.valeurs[i];
+				if (!lus[position]) {
+					messages.add(lire(position, true));
+				}
+			}
+		} finally {
+			verrou.readLock().unlock();
+		}
+		return messages;
+	}
+
+	@Override
+	public String getContenuChiffre(int messageId, int destinataireId) {
+		verrou.readLock().lock();
+		try {
+			int position = messageId - 1;
+			if (position < 0 || position >= nombreMessages || destinataires[position] != destinataireId) {
+				return null;
+			}
+			return contenu(position);
+		} finally {
+			verrou.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void marquerCommeLu(int messageId) {
+		verrou.writeLock().lock();
+		try {
+			marquer(messageId - 1);
+		} finally {
+			verrou.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Sans base distante, la lecture est écrite immédiatement
+	 */
+	@Override
+	public void signalerLecture(int messageId) {
+		marquerCommeLu(messageId);
+	}
+
+	@Override
+	public Boolean marquerCommeLus(Collection<Integer> messageIds) {
+		verrou.writeLock().lock();
+		try {
+			for (int messageId : messageIds) {
+				marquer(messageId - 1);
+			}
+			return true;
+		} finally {
+			verrou.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public int marquerToutCommeLu(int userId) {
+		verrou.writeLock().lock();
+		try {
+			if (!existe(userId)) {
+				return 0;
+			}
+			int modifies = 0;
+			ListeEntiers recus = recusParUtilisateur.get(userId - 1);
+			for (int i = 0; i < recus.taille; i++) {
+				if (marquer(recus.valeurs[i])) {
+					modifies++;
+				}
+			}
+			return modifies;
+		} finally {
+			verrou.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public Statistiques getStatistiques(int userId) {
+		verrou.readLock().lock();
+		try {
+			if (!existe(userId)) {
+				return new Statistiques(0, 0, 0);
+			}
+			int[] totaux = totauxParUtilisateur.get(userId - 1);
+			Statistiques statistiques = new Statistiques(totaux[RECUS], totaux[LUS], totaux[ENVOYES]);
+			ListeEntiers recus = recusParUtilisateur.get(userId - 1);
+			ListeEntiers envoyes = envoyesParUtilisateur.get(userId - 1);
+
+			// Principaux correspondants (messages reçus et envoyés confondus)
+			int[] echanges = new int[utilisateurs.size()];
+			for (int i = 0; i < recus.taille; i++) {
+				echanges[expediteurs[recus.valeurs[i]] - 1]++;
+			}
+			for (int i = 0; i < envoyes.taille; i++) {
+				echanges[destinataires[envoyes.valeurs[i]] - 1]++;
+			}
+			List<Integer> classement = new ArrayList<>();
+			for (int i = 0; i < echanges.length; i++) {
+				if (echanges[i] > 0) {
+					classement.add(i);
+				}
+			}
+			classement.sort(Comparator.<Integer>comparingInt(i -> -echanges[i])
+				.thenComparing(i -> utilisateurs.get(i).getNomUtilisateur()));
+			Map<String, Integer> correspondants = new LinkedHashMap<>();
+			for (int i : classement.subList(0, Math.min(NOMBRE_CORRESPONDANTS, classement.size()))) {
+				correspondants.put(utilisateurs.get(i).getNomUtilisateur(), echanges[i]);
+			}
+			statistiques.setCorrespondants(correspondants);
+
+			// Messages reçus par jour sur la période récente : parcours depuis le plus récent
+			ZoneId zone = ZoneId.systemDefault();
+			LocalDate premierJour = LocalDate.now(zone).minusDays(JOURS_VOLUME - 1);
+			long limite = premierJour.atStartOfDay(zone).toInstant().toEpochMilli();
+			Map<LocalDate, Integer> volumeParJour = new LinkedHashMap<>();
+			int i = recus.taille - 1;
+			while (i >= 0 && dates[recus.valeurs[i]] >= limite) {
+				i--;
+			}
+			for (i++; i < recus.taille; i++) {
+				LocalDate jour = new Timestamp(dates[recus.valeurs[i]]).toLocalDateTime().toLocalDate();
+				volumeParJour.merge(jour, 1, Integer::sum);
+			}
+			statistiques.setVolumeParJour(volumeParJour);
+
+			return statistiques;
+		} finally {
+			verrou.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Écrit les pages modifiées du journal et ferme le fichier des utilisateurs
+	 */
+	@Override
+	public void fermer() throws SQLException {
+		verrou.writeLock().lock();
+		try {
+			if (journal != null) {
+				journal.fermer();
+				journal = null;
+			}
+			if (fichierUtilisateurs != null) {
+				fichierUtilisateurs.close();
+				fichierUtilisateurs = null;
+			}
+		} catch (IOException e) {
+			throw new SQLException("Fermeture du journal impossible: " + e.getMessage(), e);
+		} finally {
+			verrou.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Supprime un message : il disparaît des boîtes, des statistiques et du journal
+	 * Retourne false s'il n'existe pas (ou plus)
+	 */
+	public Boolean supprimerMessage(int messageId) {
+		verrou.writeLock().lock();
+		try {
+			int position = messageId - 1;
+			if (position < 0 || position >= nombreMessages || destinataires[position] == 0) {
+				return false;
+			}
+			if (journal != null) {
+				journal.supprimer(messageId);
+			}
+
+			int expediteurId = expediteurs[position];
+			int destinataireId = destinataires[position];
+			recusParUtilisateur.get(destinataireId - 1).retirer(position);
+			envoyesParUtilisateur.get(expediteurId - 1).retirer(position);
+			int[] totauxDestinataire = totauxParUtilisateur.get(destinataireId - 1);
+			totauxDestinataire[RECUS]--;
+			if (lus[position]) {
+				totauxDestinataire[LUS]--;
+			}
+			totauxParUtilisateur.get(expediteurId - 1)[ENVOYES]--;
+
+			// Même état qu'un identifiant absent du journal à la relecture
+			expediteurs[position] = 0;
+			destinataires[position] = 0;
+			lus[position] = false;
+			contenus[position] = null;
+			return true;
+		} finally {
+			verrou.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Récupère sur disque la place des messages supprimés (voir JournalMessages.compacter)
+	 * Les lectures sont suspendues pendant la réécriture des segments
+	 * Retourne le nombre d'octets récupérés (0 si le stockage est volatil), ou -1 en cas d'erreur
+	 */
+	public long compacter() {
+		verrou.writeLock().lock();
+		try {
+			return journal != null ? journal.compacter() : 0;
+		} catch (IOException e) {
+			System.err.println("Erreur lors de la compaction du journal: " + e.getMessage());
+			return -1;
+		} finally {
+			verrou.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Octets du journal occupés par des messages supprimés, récupérables par compacter()
+	 */
+	public long getOctetsSupprimes() {
+		verrou.readLock().lock();
+		try {
+			return journal != null ? journal.getOctetsMorts() : 0;
+		} finally {
+			verrou.readLock().unlock();
+		}
+	}
+
+	private boolean existe(int userId) {
+		return userId >= 1 && userId <= utilisateurs.size();
+	}
+
+	/**
+	 * Ajoute un message à la fin du journal et aux index ; retourne sa position
+	 */
+	private int ajouterAuJournal(Message message) throws IOException {
+		int position = nombreMessages;
+		// Horloge non décroissante : l'ordre du journal est aussi l'ordre des dates
+		long date = Math.max(derniereDate, System.currentTimeMillis());
+		if (journal != null) {
+			journal.ajouter(position + 1, message.getExpediteurId(), message.getDestinataireId(), date,
+				message.getContenuChiffre().getBytes(StandardCharsets.UTF_8));
+		}
+		placer(position, message.getExpediteurId(), message.getDestinataireId(), date, false);
+		if (journal == null) {
+			contenus[position] = message.getContenuChiffre();
+		}
+		return position;
+	}
+
+	/**
+	 * Reconstruit l'entrée d'un message relu depuis le journal (identifiants croissants, éventuellement troués)
+	 */
+	private void restaurer(int id, int expediteurId, int destinataireId, long dateEnvoi, boolean lu) {
+		placer(id - 1, expediteurId, destinataireId, dateEnvoi, lu);
+	}
+
+	/**
+	 * Range un message dans les colonnes et les index par utilisateur
+	 */
+	private void placer(int position, int expediteurId, int destinataireId, long date, boolean lu) {
+		if (position >= dates.length) {
+			int capacite = Math.max(position + 1, dates.length * 2);
+			expediteurs = Arrays.copyOf(expediteurs, capacite);
+			destinataires = Arrays.copyOf(destinataires, capacite);
+			dates = Arrays.copyOf(dates, capacite);
+			lus = Arrays.copyOf(lus, capacite);
+			contenus = Arrays.copyOf(contenus, capacite);
+		}
+
+		nombreMessages = position + 1;
+		derniereDate = Math.max(derniereDate, date);
+		expediteurs[position] = expediteurId;
+		destinataires[position] = destinataireId;
+		dates[position] = date;
+		lus[position] = lu;
+
+		recusParUtilisateur.get(destinataireId - 1).ajouter(position);
+		envoyesParUtilisateur.get(expediteurId - 1).ajouter(position);
+		int[] totauxDestinataire = totauxParUtilisateur.get(destinataireId - 1);
+		totauxDestinataire[RECUS]++;
+		if (lu) {
+			totauxDestinataire[LUS]++;
+		}
+		totauxParUtilisateur.get(expediteurId - 1)[ENVOYES]++;
+	}
+
+	/**
+	 * Passe un message à lu ; retourne false s'il l'était déjà ou n'existe pas
+	 */
+	private boolean marquer(int position) {
+		// Destinataire 0 : identifiant absent du journal (message supprimé)
+		if (position < 0 || position >= nombreMessages || lus[position] || destinataires[position] == 0) {
+			return false;
+		}
+		lus[position] = true;
+		if (journal != null) {
+			journal.marquerLu(position + 1);
+		}
+		totauxParUtilisateur.get(destinataires[position] - 1)[LUS]++;
+		return true;
+	}
+
+	private Message lire(int position, boolean avecContenu) {
+		Message message = new Message(
+			position + 1,
+			expediteurs[position],
+			destinataires[position],
+			avecContenu ? contenu(position) : null,
+			new Timestamp(dates[position]),
+			lus[position]
+		);
+		message.setNomExpediteur(utilisateurs.get(expediteurs[position] - 1).getNomUtilisateur());
+		return message;
+	}
+
+	/**
+	 * Contenu chiffré : décodé depuis le journal seulement maintenant, ou gardé en mémoire
+	 */
+	private String contenu(int position) {
+		return journal != null ? journal.lireContenu(position + 1) : contenus[position];
+	}
+
+	/**
+	 * Enregistrement : id (int) | nom | clé publique | clé privée (writeUTF) ; une clé absente est écrite vide
+	 */
+	private void ecrireUtilisateur(Utilisateur utilisateur) throws IOException {
+		fichierUtilisateurs.writeInt(utilisateur.getId());
+		fichierUtilisateurs.writeUTF(utilisateur.getNomUtilisateur());
+		fichierUtilisateurs.writeUTF(ecrireCle(utilisateur.getClePublique()));
+		fichierUtilisateurs.writeUTF(ecrireCle(utilisateur.getClePrivee()));
+		fichierUtilisateurs.flush();
+	}
+
+	/**
+	 * Relit les enregistrements complets ; un dernier enregistrement interrompu est retiré du fichier
+	 * pour que les ajouts suivants ne soient pas écrits à sa suite
+	 */
+	private void relireUtilisateurs(Path chemin) throws IOException {
+		long fin = 0;
+		try (DataInputStream entree = new DataInputStream(new BufferedInputStream(Files.newInputStream(chemin)))) {
+			while (true) {
+				int id;
+				String nom, clePublique, clePrivee;
+				try {
+					id = entree.readInt();
+					nom = entree.readUTF();
+					clePublique = entree.readUTF();
+					clePrivee = entree.readUTF();
+				} catch (EOFException e) {
+					// Fin du fichier (ou dernier enregistrement interrompu)
+					break;
+				}
+				fin += Integer.BYTES + octetsUTF(nom) + octetsUTF(clePublique) + octetsUTF(clePrivee);
+				Utilisateur utilisateur = new Utilisateur(id, nom, lireCle(clePublique), lireCle(clePrivee));
+				utilisateurs.add(utilisateur);
+				utilisateursParNom.put(utilisateur.getNomUtilisateur(), utilisateur);
+				recusParUtilisateur.add(new ListeEntiers());
+				envoyesParUtilisateur.add(new ListeEntiers());
+				totauxParUtilisateur.add(new int[3]);
+			}
+		}
+		if (fin < Files.size(chemin)) {
+			System.err.println("Enregistrement utilisateur interrompu retiré de " + chemin);
+			try (FileChannel canal = FileChannel.open(chemin, StandardOpenOption.WRITE)) {
+				canal.truncate(fin);
+			}
+		}
+	}
+
+	private static String ecrireCle(String cle) {
+		return cle != null ? cle : "";
+	}
+
+	/**
+	 * Clé relue : vide (ou "null", écrit par les versions précédentes) pour une clé absente
+	 */
+	private static String lireCle(String cle) {
+		return cle.isEmpty() || cle.equals("null") ? null : cle;
+	}
+
+	/**
+	 * Taille écrite par writeUTF : longueur sur 2 octets puis UTF-8 modifié
+	 */
+	private static int octetsUTF(String texte) {
+		int octets = 2;
+		for (int i = 0; i < texte.length(); i++) {
+			char c = texte.charAt(i);
+			octets += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+		}
+		return octets;
+	}
+
+	private static Utilisateur copier(Utilisateur utilisateur) {
+		return new Utilisateur(utilisateur.getId(), utilisateur.getNomUtilisateur(),
+			utilisateur.getClePublique(), utilisateur.getClePrivee());
+	}
+}
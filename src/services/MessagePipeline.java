@@ -0,0 +1,283 @@
+package services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import exceptions.CryptoException;
+import models.Message;
+
+/**
+ * Chaîne d'envoi asynchrone des messages, hors du thread appelant
+ * 1. file d'entrée bornée : l'appelant est bloqué quand elle est pleine (contre-pression)
+ * 2. chiffrement sur un pool de threads (un par cœur)
+ * 3. insertion par un thread d'E/S qui regroupe les messages prêts en INSERT multi-lignes
+ * Chaque envoi retourne un CompletableFuture portant l'identifiant du message inséré
+ * Une exception imprévue fait échouer l'envoi (ou le lot) concerné sans arrêter les threads
+ */
+public class MessagePipeline {
+	// Valeurs par défaut
+	public static final int CAPACITE_DEFAUT = 1024;
+	public static final int TAILLE_LOT_DEFAUT = 100;
+	// Attente maximale d'un thread sur une file vide avant de revérifier l'arrêt
+	private static final long ATTENTE_MS = 100;
+
+	/**
+	 * Durées mesurées pour une étape de la chaîne
+	 */
+	public static final class Metrique {
+		private final String nom;
+		private final AtomicLong nombre = new AtomicLong();
+		private final AtomicLong totalNanos = new AtomicLong();
+		private final AtomicLong maxNanos = new AtomicLong();
+
+		private Metrique(String nom) {
+			this.nom = nom;
+		}
+
+		private void enregistrer(long nanos) {
+			nombre.incrementAndGet();
+			totalNanos.addAndGet(nanos);
+			maxNanos.accumulateAndGet(nanos, Math::max);
+		}
+
+		public long getNombre() {
+			return nombre.get();
+		}
+
+		public double getMoyenneMs() {
+			long n = nombre.get();
+			return n == 0 ? 0 : totalNanos.get() / 1e6 / n;
+		}
+
+		public double getMaxMs() {
+			return maxNanos.get() / 1e6;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: %d, moyenne %.3f ms, max %.3f ms", nom, getNombre(), getMoyenneMs(), getMaxMs());
+		}
+	}
+
+	/**
+	 * Message en transit dans la chaîne
+	 */
+	private static final class Envoi {
+		private final int expediteurId;
+		private final int destinataireId;
+		private final String nomDestinataire;
+		private final String texte;
+		private final CompletableFuture<Integer> resultat = new CompletableFuture<>();
+		private final long entree = System.nanoTime();
+		private long debutEtape;
+		private Message message;
+
+		private Envoi(int expediteurId, int destinataireId, String nomDestinataire, String texte) {
+			this.expediteurId = expediteurId;
+			this.destinataireId = destinataireId;
+			this.nomDestinataire = nomDestinataire;
+			this.texte = texte;
+		}
+	}
+
+	private final CryptoManager cryptoManager;
+	private final MessageStore dbManager;
+	private final int tailleLot;
+
+	// Messages en attente de chiffrement, puis en attente d'insertion
+	private final BlockingQueue<Envoi> aChiffrer;
+	private final BlockingQueue<Envoi> aInserer;
+	private final ExecutorService chiffrement;
+	private final Thread insertion;
+	private volatile boolean ouvert = true;
+
+	// Métriques par étape
+	private final Metrique attente = new Metrique("attente avant chiffrement");
+	private final Metrique dureeChiffrement = new Metrique("chiffrement");
+	private final Metrique attenteInsertion = new Metrique("attente avant insertion");
+	private final Metrique dureeInsertion = new Metrique("insertion (par lot)");
+	private final Metrique total = new Metrique("total");
+
+	public MessagePipeline(CryptoManager cryptoManager, MessageStore dbManager) {
+		this(cryptoManager, dbManager, CAPACITE_DEFAUT, TAILLE_LOT_DEFAUT);
+	}
+
+	public MessagePipeline(CryptoManager cryptoManager, MessageStore dbManager, int capacite, int tailleLot) {
+		this.cryptoManager = cryptoManager;
+		this.dbManager = dbManager;
+		this.tailleLot = tailleLot;
+		this.aChiffrer = new ArrayBlockingQueue<>(capacite);
+		this.aInserer = new ArrayBlockingQueue<>(capacite);
+
+		int threads = Runtime.getRuntime().availableProcessors();
+		this.chiffrement = Executors.newFixedThreadPool(threads, tache -> {
+			Thread thread = new Thread(tache, "pipeline-chiffrement");
+			thread.setDaemon(true);
+			return thread;
+		});
+		for (int i = 0; i < threads; i++) {
+			chiffrement.execute(this::boucleChiffrement);
+		}
+
+		this.insertion = new Thread(this::boucleInsertion, "pipeline-insertion");
+		this.insertion.setDaemon(true);
+		this.insertion.start();
+	}
+
+	/**
+	 * Place un message dans la file d'envoi ; bloque tant que la file est pleine
+	 * Le résultat porte l'identifiant du message inséré, ou l'erreur survenue
+	 */
+	public CompletableFuture<Integer> envoyer(int expediteurId, int destinataireId, String nomDestinataire, String texte)
+			throws InterruptedException {
+		if (!ouvert) {
+			throw new IllegalStateException("Chaîne d'envoi fermée");
+		}
+		Envoi envoi = new Envoi(expediteurId, destinataireId, nomDestinataire, texte);
+		aChiffrer.put(envoi);
+		return envoi.resultat;
+	}
+
+	/**
+	 * Comme envoyer(), sans bloquer : retourne null si la file est pleine
+	 */
+	public CompletableFuture<Integer> tenterEnvoyer(int expediteurId, int destinataireId, String nomDestinataire, String texte) {
+		if (!ouvert) {
+			throw new IllegalStateException("Chaîne d'envoi fermée");
+		}
+		Envoi envoi = new Envoi(expediteurId, destinataireId, nomDestinataire, texte);
+		return aChiffrer.offer(envoi) ? envoi.resultat : null;
+	}
+
+	/**
+	 * Nombre de messages pas encore insérés
+	 */
+	public int getEnAttente() {
+		return aChiffrer.size() + aInserer.size();
+	}
+
+	public List<Metrique> getMetriques() {
+		return List.of(attente, dureeChiffrement, attenteInsertion, dureeInsertion, total);
+	}
+
+	/**
+	 * Termine les envois déjà acceptés puis arrête les threads
+	 */
+	public void fermer() {
+		ouvert = false;
+		chiffrement.shutdown();
+		try {
+			chiffrement.awaitTermination(1, TimeUnit.MINUTES);
+			insertion.join(TimeUnit.MINUTES.toMillis(1));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		// Envois acceptés pendant la fermeture, après l'arrêt des threads
+		Envoi restant;
+		while ((restant = aChiffrer.poll()) != null) {
+			restant.resultat.completeExceptionally(new IllegalStateException("Chaîne d'envoi fermée"));
+		}
+	}
+
+	/**
+	 * Étape 2 : chiffrement (plusieurs threads)
+	 */
+	private void boucleChiffrement() {
+		try {
+			while (true) {
+				Envoi envoi = aChiffrer.poll(ATTENTE_MS, TimeUnit.MILLISECONDS);
+				if (envoi == null) {
+					if (!ouvert) return;
+					continue;
+				}
+
+				long debut = System.nanoTime();
+				attente.enregistrer(debut - envoi.entree);
+				String chiffre;
+				try {
+					chiffre = cryptoManager.chiffrerMessage(envoi.nomDestinataire, envoi.texte);
+				} catch (RuntimeException e) {
+					// Seul cet envoi échoue : le thread continue de servir la file
+					System.err.println("Erreur inattendue lors du chiffrement pour " + envoi.nomDestinataire + ": " + e);
+					envoi.resultat.completeExceptionally(e);
+					continue;
+				}
+				envoi.debutEtape = System.nanoTime();
+				dureeChiffrement.enregistrer(envoi.debutEtape - debut);
+
+				if (chiffre == null) {
+					envoi.resultat.completeExceptionally(
+						new CryptoException("Erreur lors du chiffrement pour " + envoi.nomDestinataire));
+					continue;
+				}
+				envoi.message = new Message(envoi.expediteurId, envoi.destinataireId, chiffre);
+				aInserer.put(envoi);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Étape 3 : insertion par lots (un seul thread, une connexion à la fois)
+	 */
+	private void boucleInsertion() {
+		List<Envoi> lot = new ArrayList<>(tailleLot);
+		try {
+			while (true) {
+				Envoi premier = aInserer.poll(ATTENTE_MS, TimeUnit.MILLISECONDS);
+				if (premier == null) {
+					if (chiffrement.isTerminated() && aInserer.isEmpty()) return;
+					continue;
+				}
+
+				// Regroupe tout ce qui est déjà prêt, dans la limite d'un lot
+				lot.add(premier);
+				aInserer.drainTo(lot, tailleLot - 1);
+				try {
+					inserer(lot);
+				} catch (RuntimeException e) {
+					// Tout le lot échoue, le thread d'insertion reste en service
+					System.err.println("Erreur inattendue lors de l'insertion d'un lot de " + lot.size() + " message(s): " + e);
+					for (Envoi envoi : lot) {
+						envoi.resultat.completeExceptionally(e);
+					}
+				}
+				lot.clear();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void inserer(List<Envoi> lot) {
+		long debut = System.nanoTime();
+		List<Message> messages = new ArrayList<>(lot.size());
+		for (Envoi envoi : lot) {
+			attenteInsertion.enregistrer(debut - envoi.debutEtape);
+			messages.add(envoi.message);
+		}
+
+		int inseres = dbManager.envoyerMessages(messages);
+		long fin = System.nanoTime();
+		dureeInsertion.enregistrer(fin - debut);
+
+		for (Envoi envoi : lot) {
+			if (inseres == messages.size()) {
+				envoi.resultat.complete(envoi.message.getId());
+			} else {
+				envoi.resultat.completeExceptionally(
+					new IllegalStateException("Erreur lors de l'insertion du message pour " + envoi.nomDestinataire));
+			}
+			total.enregistrer(fin - envoi.entree);
+		}
+	}
+}
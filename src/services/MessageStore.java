@@ -0,0 +1,138 @@
+package services;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+import models.Message;
+import models.Statistiques;
+import models.Utilisateur;
+
+/**
+ * Contrat commun aux stockages des utilisateurs et des messages
+ * Implémentations : DatabaseManager (MySQL via JDBC) et MemoireMessageStore (embarqué, sans serveur)
+ * Le stockage est choisi via la propriété système "db.stockage" : "mysql" (par défaut) ou "memoire"
+ * Les méthodes sont utilisables depuis plusieurs threads
+ */
+public interface MessageStore {
+	// Noms des stockages disponibles
+	String STOCKAGE_MYSQL = "mysql";
+	String STOCKAGE_MEMOIRE = "memoire";
+
+	/**
+	 * Instancie le stockage configuré par -Ddb.stockage
+	 */
+	static MessageStore depuisConfiguration() {
+		String nom = System.getProperty("db.stockage", STOCKAGE_MYSQL);
+		switch (nom) {
+			case STOCKAGE_MYSQL:
+				return new DatabaseManager();
+			case STOCKAGE_MEMOIRE:
+				// Avec -Ddb.journal=<répertoire>, le contenu est conservé sur disque
+				String journal = System.getProperty("db.journal");
+				return journal == null ? new MemoireMessageStore() : new MemoireMessageStore(Path.of(journal));
+			default:
+				throw new IllegalArgumentException("Stockage inconnu: " + nom);
+		}
+	}
+
+	/**
+	 * Prépare le stockage (connexion, schéma) avant la première opération
+	 */
+	void initialiser() throws SQLException;
+
+	/**
+	 * Ajoute un nouvel utilisateur ; false si le nom est déjà pris ou en cas d'erreur
+	 */
+	Boolean ajouterUtilisateur(Utilisateur user);
+
+	/**
+	 * Récupère un utilisateur par son nom (null s'il est introuvable)
+	 * Le chemin de la clé privée peut ne pas être renseigné : voir getClePrivee
+	 */
+	Utilisateur getUtilisateur(String nomUtilisateur);
+
+	/**
+	 * Chemin de la clé privée d'un utilisateur, lu à la demande (null s'il est introuvable)
+	 */
+	String getClePrivee(int userId);
+
+	/**
+	 * Retourne tous les utilisateurs, triés par nom
+	 */
+	ArrayList<Utilisateur> listerUtilisateurs();
+
+	/**
+	 * Parcourt les utilisateurs triés par nom sans les charger tous en mémoire
+	 * Seuls l'identifiant et le nom sont renseignés ; le traitement ne doit pas interroger le stockage
+	 * Retourne le nombre d'utilisateurs parcourus, ou -1 en cas d'erreur
+	 */
+	int parcourirUtilisateurs(Consumer<Utilisateur> traitement);
+
+	/**
+	 * Enregistre un message chiffré
+	 */
+	Boolean envoyerMessage(Message message);
+
+	/**
+	 * Enregistre plusieurs messages d'un coup et leur affecte leur identifiant
+	 * Retourne le nombre de messages enregistrés (0 en cas d'erreur)
+	 */
+	int envoyerMessages(List<Message> messages);
+
+	/**
+	 * Tous les messages reçus par un utilisateur, du plus récent au plus ancien
+	 */
+	ArrayList<Message> getMessagesRecus(int userId);
+
+	/**
+	 * Page d'en-têtes (sans contenu chiffré) reçus par un utilisateur, du plus récent au plus ancien
+	 * La page suivante commence après (apresDate, apresId) ; apresDate = null pour la première page
+	 */
+	ArrayList<Message> getMessagesRecus(int userId, Timestamp apresDate, int apresId, int limite);
+
+	/**
+	 * Au plus limite messages non lus (avec contenu chiffré) reçus par un utilisateur, du plus récent au plus ancien
+	 */
+	ArrayList<Message> getMessagesNonLus(int userId, int limite);
+
+	/**
+	 * Contenu chiffré d'un message reçu par l'utilisateur donné (null sinon)
+	 */
+	String getContenuChiffre(int messageId, int destinataireId);
+
+	/**
+	 * Marque un message comme lu immédiatement
+	 */
+	void marquerCommeLu(int messageId);
+
+	/**
+	 * Signale la lecture d'un message ; l'écriture peut être différée
+	 */
+	void signalerLecture(int messageId);
+
+	/**
+	 * Marque plusieurs messages comme lus
+	 */
+	Boolean marquerCommeLus(Collection<Integer> messageIds);
+
+	/**
+	 * Marque tous les messages reçus par un utilisateur comme lus
+	 * Retourne le nombre de messages modifiés, ou -1 en cas d'erreur
+	 */
+	int marquerToutCommeLu(int userId);
+
+	/**
+	 * Statistiques d'un utilisateur (null en cas d'erreur)
+	 */
+	Statistiques getStatistiques(int userId);
+
+	/**
+	 * Écrit ce qui est en attente puis libère les ressources
+	 */
+	void fermer() throws SQLException;
+}
@@ -0,0 +1,183 @@
+package services;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tampon des accusés de lecture : les messages ouverts sont marqués comme lus par lots
+ * (un seul UPDATE ... WHERE id IN (...)) dès que le tampon atteint sa taille maximale
+ * ou que le délai depuis la première lecture en attente est écoulé
+ * Une seule écriture à la fois ; après un échec, une nouvelle écriture est programmée
+ * avec un délai doublé à chaque échec (plafonné)
+ * fermer() attend l'écriture en cours puis réessaie quelques fois les lectures restantes ;
+ * après la fermeture, chaque lecture est écrite immédiatement
+ */
+public class TamponLectures {
+	// Seuils par défaut
+	public static final int TAILLE_DEFAUT = 100;
+	public static final long DELAI_DEFAUT_MS = 2_000;
+	// Délai maximal entre deux nouvelles tentatives après des échecs successifs
+	public static final long DELAI_REPRISE_MAX_MS = 60_000;
+	// Tentatives d'écriture à la fermeture, et pause entre deux tentatives
+	private static final int TENTATIVES_FERMETURE = 3;
+	private static final long PAUSE_FERMETURE_MS = 200;
+
+	private final MessageStore dbManager;
+	private final int tailleMax;
+	private final long delaiMs;
+
+	// Identifiants des messages lus pas encore écrits en base (sans doublons)
+	private final Set<Integer> enAttente = new LinkedHashSet<>();
+	// Tenu pendant toute une écriture : une seule écriture à la fois
+	private final Object ecriture = new Object();
+	// Écriture différée, créée au premier besoin
+	private ScheduledExecutorService minuterie;
+	private ScheduledFuture<?> vidageProgramme;
+	// Échecs d'écriture consécutifs (0 : aucune reprise en cours)
+	private int echecs;
+	private boolean ferme;
+
+	public TamponLectures(MessageStore dbManager) {
+		this(dbManager, TAILLE_DEFAUT, DELAI_DEFAUT_MS);
+	}
+
+	public TamponLectures(MessageStore dbManager, int tailleMax, long delaiMs) {
+		this.dbManager = dbManager;
+		this.tailleMax = tailleMax;
+		this.delaiMs = delaiMs;
+	}
+
+	/**
+	 * Enregistre la lecture d'un message ; écrit le lot si le tampon est plein
+	 * Après fermer(), la lecture est écrite immédiatement, sans tampon
+	 */
+	public void ajouter(int messageId) {
+		boolean plein = false;
+		boolean direct;
+		synchronized (this) {
+			direct = ferme;
+			if (!direct) {
+				enAttente.add(messageId);
+				// Pendant une reprise, le tampon plein attend la tentative programmée
+				plein = enAttente.size() >= tailleMax && echecs == 0;
+				if (!plein && vidageProgramme == null) {
+					vidageProgramme = getMinuterie().schedule(this::vider, delaiMs, TimeUnit.MILLISECONDS);
+				}
+			}
+		}
+		if (direct) {
+			if (!dbManager.marquerCommeLus(List.of(messageId))) {
+				System.err.println("Lecture du message " + messageId + " non enregistrée (tampon fermé)");
+			}
+		} else if (plein) {
+			vider();
+		}
+	}
+
+	/**
+	 * Écrit immédiatement toutes les lectures en attente (après l'écriture en cours, s'il y en a une)
+	 * En cas d'échec, elles restent dans le tampon et une nouvelle tentative est programmée
+	 * Retourne le nombre de lectures écrites
+	 */
+	public int vider() {
+		synchronized (ecriture) {
+			List<Integer> lot;
+			synchronized (this) {
+				if (vidageProgramme != null) {
+					vidageProgramme.cancel(false);
+					vidageProgramme = null;
+				}
+				if (enAttente.isEmpty()) {
+					return 0;
+				}
+				lot = new ArrayList<>(enAttente);
+				enAttente.clear();
+			}
+
+			if (dbManager.marquerCommeLus(lot)) {
+				synchronized (this) {
+					echecs = 0;
+				}
+				return lot.size();
+			}
+			synchronized (this) {
+				enAttente.addAll(lot);
+				if (!ferme && vidageProgramme == null) {
+					long delai = Math.min(delaiMs << Math.min(echecs, 20), DELAI_REPRISE_MAX_MS);
+					echecs++;
+					System.err.println("Écriture des lectures échouée, nouvelle tentative dans " + delai + " ms");
+					vidageProgramme = getMinuterie().schedule(this::vider, delai, TimeUnit.MILLISECONDS);
+				}
+			}
+			return 0;
+		}
+	}
+
+	/**
+	 * Nombre de lectures en attente d'écriture
+	 */
+	public synchronized int getEnAttente() {
+		return enAttente.size();
+	}
+
+	/**
+	 * Écrit les lectures en attente puis arrête l'écriture différée
+	 * Les lectures encore en échec après TENTATIVES_FERMETURE essais sont abandonnées et comptées dans le journal d'erreurs
+	 */
+	public void fermer() {
+		synchronized (this) {
+			ferme = true;
+			if (vidageProgramme != null) {
+				vidageProgramme.cancel(false);
+				vidageProgramme = null;
+			}
+		}
+
+		int perdues;
+		synchronized (ecriture) {
+			// L'écriture en cours sur la minuterie est terminée : son lot est écrit ou revenu dans le tampon
+			for (int tentative = 0; tentative < TENTATIVES_FERMETURE && getEnAttente() > 0; tentative++) {
+				if (tentative > 0) {
+					try {
+						Thread.sleep(PAUSE_FERMETURE_MS * tentative);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						break;
+					}
+				}
+				vider();
+			}
+			synchronized (this) {
+				perdues = enAttente.size();
+				enAttente.clear();
+			}
+		}
+		if (perdues > 0) {
+			System.err.println(perdues + " lecture(s) non enregistrée(s) à la fermeture");
+		}
+
+		synchronized (this) {
+			if (minuterie != null) {
+				minuterie.shutdown();
+				minuterie = null;
+			}
+		}
+	}
+
+	private synchronized ScheduledExecutorService getMinuterie() {
+		if (minuterie == null) {
+			minuterie = Executors.newSingleThreadScheduledExecutor(tache -> {
+				Thread thread = new Thread(tache, "tampon-lectures");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return minuterie;
+	}
+}
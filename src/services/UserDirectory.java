@@ -0,0 +1,170 @@
+package services;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import database.ConnexionJDBC;
+import models.Utilisateur;
+
+/**
+ * Annuaire des utilisateurs gardé en mémoire (par nom et par identifiant)
+ * Chargé en une fois au démarrage par un résultat en flux (ligne à ligne), puis complété
+ * par les nouveaux comptes au plus une fois par intervalle, ou aussitôt après invalider() (création de compte)
+ * Les identifiants AUTO_INCREMENT ne sont pas validés dans l'ordre entre sessions : chaque rafraîchissement
+ * relit une fenêtre sous le plus grand id connu, et un nom ou un id inconnu est cherché directement en base
+ * Seuls l'id, le nom et la clé publique sont gardés : le chemin de la clé privée reste null
+ * (lu à la demande par DatabaseManager.getClePrivee)
+ * Les comptes ne sont ni modifiés ni supprimés par l'application : l'ajout suffit à rester à jour
+ */
+public class UserDirectory {
+	public static final long INTERVALLE_DEFAUT_MS = 30_000;
+	// Identifiants relus sous le plus grand id connu (comptes validés après un id plus grand)
+	private static final int FENETRE_RELECTURE = 100;
+	private static final String COLONNES = "SELECT id, nom_utilisateur, cle_publique FROM Utilisateurs ";
+
+	private final ConnexionJDBC connexionJDBC;
+	private final long intervalleMs;
+
+	private final Map<String, Utilisateur> parNom = new ConcurrentHashMap<>();
+	private final Map<Integer, Utilisateur> parId = new ConcurrentHashMap<>();
+	// Plus grand identifiant chargé, et date du dernier rafraîchissement (0 : à rafraîchir)
+	private int dernierId;
+	private volatile long dernierRafraichissement;
+
+	public UserDirectory(ConnexionJDBC connexionJDBC) {
+		this(connexionJDBC, INTERVALLE_DEFAUT_MS);
+	}
+
+	public UserDirectory(ConnexionJDBC connexionJDBC, long intervalleMs) {
+		this.connexionJDBC = connexionJDBC;
+		this.intervalleMs = intervalleMs;
+	}
+
+	/**
+	 * Utilisateur portant ce nom, ou null ; un nom inconnu est cherché directement en base
+	 */
+	public Utilisateur parNom(String nomUtilisateur) {
+		rafraichirSiPerime();
+		Utilisateur utilisateur = parNom.get(nomUtilisateur);
+		if (utilisateur == null) {
+			// Compte créé depuis le dernier rafraîchissement (autre instance, autre processus),
+			// éventuellement avec un id inférieur au plus grand déjà chargé
+			utilisateur = charger("nom_utilisateur = ?", nomUtilisateur);
+		}
+		return utilisateur;
+	}
+
+	/**
+	 * Utilisateur portant cet identifiant, ou null
+	 */
+	public Utilisateur parId(int id) {
+		rafraichirSiPerime();
+		Utilisateur utilisateur = parId.get(id);
+		if (utilisateur == null) {
+			utilisateur = charger("id = ?", id);
+		}
+		return utilisateur;
+	}
+
+	/**
+	 * Tous les utilisateurs connus, triés par nom
+	 */
+	public ArrayList<Utilisateur> lister() {
+		rafraichirSiPerime();
+		ArrayList<Utilisateur> utilisateurs = new ArrayList<>(parId.values());
+		utilisateurs.sort(Comparator.comparing(Utilisateur::getNomUtilisateur));
+		return utilisateurs;
+	}
+
+	/**
+	 * Force un rafraîchissement à la prochaine consultation (ex: après ajouterUtilisateur)
+	 */
+	public void invalider() {
+		dernierRafraichissement = 0;
+	}
+
+	public int getTaille() {
+		return parId.size();
+	}
+
+	/**
+	 * Charge les comptes créés depuis le dernier rafraîchissement (tous au premier appel)
+	 * Retourne false en cas d'erreur de base de données
+	 */
+	public synchronized boolean rafraichir() {
+		String sql = COLONNES + "WHERE id > ? ORDER BY id";
+
+		Connection connexion = null;
+		try {
+			connexion = connexionJDBC.emprunter();
+
+			try (PreparedStatement pstmt = connexion.prepareStatement(sql,
+					ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+				// Lecture en flux (MySQL) : les lignes ne sont pas toutes chargées avant la première
+				pstmt.setFetchSize(Integer.MIN_VALUE);
+				pstmt.setInt(1, Math.max(0, dernierId - FENETRE_RELECTURE));
+
+				try (ResultSet rs = pstmt.executeQuery()) {
+					while (rs.next()) {
+						ajouter(rs);
+					}
+				}
+			}
+			dernierRafraichissement = System.currentTimeMillis();
+			return true;
+
+		} catch (SQLException e) {
+			System.err.println("Erreur lors du chargement des utilisateurs: " + e.getMessage());
+			return false;
+		} finally {
+			connexionJDBC.rendre(connexion);
+		}
+	}
+
+	/**
+	 * Cherche un compte en base par une condition sur une colonne et l'ajoute à l'annuaire
+	 * Retourne null s'il est introuvable ou en cas d'erreur
+	 */
+	private Utilisateur charger(String condition, Object valeur) {
+		Connection connexion = null;
+		try {
+			connexion = connexionJDBC.emprunter();
+			try (PreparedStatement pstmt = connexion.prepareStatement(COLONNES + "WHERE " + condition)) {
+				pstmt.setObject(1, valeur);
+				try (ResultSet rs = pstmt.executeQuery()) {
+					return rs.next() ? ajouter(rs) : null;
+				}
+			}
+		} catch (SQLException e) {
+			System.err.println("Erreur lors du chargement de l'utilisateur: " + e.getMessage());
+			return null;
+		} finally {
+			connexionJDBC.rendre(connexion);
+		}
+	}
+
+	private synchronized Utilisateur ajouter(ResultSet rs) throws SQLException {
+		Utilisateur utilisateur = new Utilisateur(
+			rs.getInt("id"),
+			rs.getString("nom_utilisateur"),
+			rs.getString("cle_publique"),
+			null
+		);
+		parNom.put(utilisateur.getNomUtilisateur(), utilisateur);
+		parId.put(utilisateur.getId(), utilisateur);
+		dernierId = Math.max(dernierId, utilisateur.getId());
+		return utilisateur;
+	}
+
+	private void rafraichirSiPerime() {
+		if (System.currentTimeMillis() - dernierRafraichissement >= intervalleMs) {
+			rafraichir();
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package services.crypto;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import exceptions.CryptoException;
+
+/**
+ * Cache borné (LRU) des clés RSA déjà lues, indexé par nom d'utilisateur
+ * Une entrée est relue dès que le fichier de clé change sur le disque
+ * (date de modification, taille ou identité du fichier en cas de remplacement)
+ */
+public class CacheCles {
+    // Capacité par défaut (nombre d'utilisateurs gardés en mémoire)
+    public static final int CAPACITE_DEFAUT = 1024;
+
+    private final Function<String, String> cheminCle;
+    private final boolean estPublique;
+    private final Map<String, Entree> entrees;
+
+    // Compteurs de succès et d'échecs du cache
+    private final AtomicLong succes = new AtomicLong();
+    private final AtomicLong echecs = new AtomicLong();
+
+    /**
+     * Clé lue et état du fichier au moment de la lecture
+     */
+    private static final class Entree {
+        final CleRSA cle;
+        final FileTime dateModification;
+        final long taille;
+        final Object identifiantFichier;
+
+        Entree(CleRSA cle, BasicFileAttributes attributs) {
+            this.cle = cle;
+            this.dateModification = attributs.lastModifiedTime();
+            this.taille = attributs.size();
+            this.identifiantFichier = attributs.fileKey();
+        }
+
+        boolean estAJour(BasicFileAttributes attributs) {
+            return dateModification.equals(attributs.lastModifiedTime())
+                && taille == attributs.size()
+                && Objects.equals(identifiantFichier, attributs.fileKey());
+        }
+    }
+
+    /**
+     * Constructeur avec la fonction donnant le fichier de clé d'un utilisateur
+     */
+    public CacheCles(Function<String, String> cheminCle, boolean estPublique, int capacite) {
+        this.cheminCle = cheminCle;
+        this.estPublique = estPublique;
+        this.entrees = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entree> plusAncienne) {
+                return size() > capacite;
+            }
+        };
+    }
+
+    /**
+     * Retourne la clé d'un utilisateur, relue depuis le disque si absente ou modifiée
+     */
+    public CleRSA get(String nomUtilisateur) throws CryptoException {
+        Path fichier = Paths.get(cheminCle.apply(nomUtilisateur));
+        BasicFileAttributes attributs;
+        try {
+            attributs = Files.readAttributes(fichier, BasicFileAttributes.class);
+        } catch (IOException e) {
+            // Clé supprimée: l'entrée éventuelle n'est plus valable
+            invalider(nomUtilisateur);
+            throw new CryptoException("Erreur d'ouverture du fichier " + fichier, e);
+        }
+
+        synchronized (entrees) {
+            Entree entree = entrees.get(nomUtilisateur);
+            if (entree != null && entree.estAJour(attributs)) {
+                succes.incrementAndGet();
+                return entree.cle;
+            }
+        }
+
+        // Lecture hors verrou: les autres utilisateurs ne sont pas bloqués
+        echecs.incrementAndGet();
+        CleRSA cle = CleRSA.lire(fichier.toString(), estPublique);
+        synchronized (entrees) {
+            entrees.put(nomUtilisateur, new Entree(cle, attributs));
+        }
+        return cle;
+    }
+
+    /**
+     * Retire la clé d'un utilisateur du cache (ex: après une régénération)
+     */
+    public void invalider(String nomUtilisateur) {
+        synchronized (entrees) {
+            entrees.remove(nomUtilisateur);
+        }
+    }
+
+    public int getTaille() {
+        synchronized (entrees) {
+            return entrees.size();
+        }
+    }
+
+    public long getSucces() {
+        return succes.get();
+    }
+
+    public long getEchecs() {
+        return echecs.get();
+    }
+
+    @Override
+    public String toString() {
+        return "CacheCles { taille = " + getTaille() +
+                ", succes = " + getSucces() +
+                ", echecs = " + getEchecs() + " }";
+    }
+}
@@ -0,0 +1,184 @@
+package services.crypto;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import exceptions.CryptoException;
+
+/**
+ * Représente une clé RSA (publique ou privée), équivalent Java de la structure CleRSA du module C
+ * Le fichier de clé contient deux entiers décimaux: le module n puis l'exposant (e ou d)
+ * Une clé privée récente y ajoute p, q, dP, dQ et qInv pour l'exponentiation par le théorème
+ * des restes chinois ; les anciennes clés (n et d seuls) restent lisibles
+ */
+public class CleRSA {
+    // Plus grand module pour lequel les calculs tiennent dans un long (produits < 2^62)
+    private static final int BITS_MAX_LONG = 31;
+
+    private final BigInteger n;            // MODULE: n = p * q
+    private final BigInteger exposant;     // EXPOSANT: e (public) ou d (privé)
+    private final boolean estPublique;     // TYPE DE CLE
+
+    // Clé privée seulement, null si inconnus: facteurs de n et paramètres CRT qui en découlent
+    private final BigInteger p;
+    private final BigInteger q;
+    private final BigInteger dP;           // d mod (p - 1)
+    private final BigInteger dQ;           // d mod (q - 1)
+    private final BigInteger qInv;         // q^-1 mod p
+
+    /**
+     * Constructeur complet
+     */
+    public CleRSA(BigInteger n, BigInteger exposant, boolean estPublique) {
+        this.n = n;
+        this.exposant = exposant;
+        this.estPublique = estPublique;
+        this.p = null;
+        this.q = null;
+        this.dP = null;
+        this.dQ = null;
+        this.qInv = null;
+    }
+
+    /**
+     * Clé privée dont les facteurs de n sont connus : les paramètres CRT en sont déduits
+     */
+    public CleRSA(BigInteger n, BigInteger d, BigInteger p, BigInteger q) {
+        this(n, d, p, q, d.mod(p.subtract(BigInteger.ONE)), d.mod(q.subtract(BigInteger.ONE)), q.modInverse(p));
+    }
+
+    /**
+     * Clé privée complète, telle qu'enregistrée dans le fichier
+     */
+    public CleRSA(BigInteger n, BigInteger d, BigInteger p, BigInteger q, BigInteger dP, BigInteger dQ,
+            BigInteger qInv) {
+        this.n = n;
+        this.exposant = d;
+        this.estPublique = false;
+        this.p = p;
+        this.q = q;
+        this.dP = dP;
+        this.dQ = dQ;
+        this.qInv = qInv;
+    }
+
+    /**
+     * Lit une clé RSA depuis un fichier au format du module C ("n\nexposant\n"),
+     * suivi pour une clé privée de "p\nq\ndP\ndQ\nqInv\n" (ou de "p\nq\n" seuls, les paramètres CRT étant alors recalculés)
+     */
+    public static CleRSA lire(String fichier, boolean estPublique) throws CryptoException {
+        String contenu;
+        try {
+            contenu = new String(Files.readAllBytes(Paths.get(fichier)), StandardCharsets.US_ASCII);
+        } catch (IOException e) {
+            throw new CryptoException("Erreur d'ouverture du fichier " + fichier, e);
+        }
+
+        String[] valeurs = contenu.trim().split("\\s+");
+        if (valeurs.length < 2) {
+            throw new CryptoException("Erreur lecture cle: " + fichier);
+        }
+
+        try {
+            BigInteger n = new BigInteger(valeurs[0]);
+            BigInteger exposant = new BigInteger(valeurs[1]);
+            if (!estPublique && valeurs.length >= 4) {
+                BigInteger p = new BigInteger(valeurs[2]);
+                BigInteger q = new BigInteger(valeurs[3]);
+                if (!p.multiply(q).equals(n)) {
+                    throw new CryptoException("Facteurs incohérents dans la cle: " + fichier);
+                }
+                if (valeurs.length >= 7) {
+                    return new CleRSA(n, exposant, p, q,
+                        new BigInteger(valeurs[4]), new BigInteger(valeurs[5]), new BigInteger(valeurs[6]));
+                }
+                return new CleRSA(n, exposant, p, q);
+            }
+            return new CleRSA(n, exposant, estPublique);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new CryptoException("Erreur lecture cle: " + fichier, e);
+        }
+    }
+
+    /**
+     * Enregistre la clé dans un fichier au format du module C
+     */
+    public void ecrire(String fichier) throws CryptoException {
+        String contenu = n + "\n" + exposant + "\n";
+        if (p != null) {
+            contenu += p + "\n" + q + "\n" + dP + "\n" + dQ + "\n" + qInv + "\n";
+        }
+        try {
+            Files.write(Paths.get(fichier), contenu.getBytes(StandardCharsets.US_ASCII));
+        } catch (IOException e) {
+            throw new CryptoException("Erreur d'écriture du fichier " + fichier, e);
+        }
+    }
+
+    /**
+     * Indique si les calculs peuvent se faire en arithmétique long, comme dans le module C
+     */
+    public boolean tientDansLong() {
+        return n.bitLength() <= BITS_MAX_LONG;
+    }
+
+    /**
+     * Calcule valeur^exposant mod n ; par les restes chinois si les facteurs sont connus
+     * (deux exponentiations sur des modules deux fois plus courts, environ 3 à 4 fois plus rapide)
+     */
+    public BigInteger exponentier(BigInteger valeur) {
+        if (p == null) {
+            return valeur.modPow(exposant, n);
+        }
+        BigInteger m1 = valeur.modPow(dP, p);
+        BigInteger m2 = valeur.modPow(dQ, q);
+        // Recombinaison de Garner : m = m2 + q * (qInv * (m1 - m2) mod p)
+        BigInteger h = qInv.multiply(m1.subtract(m2)).mod(p);
+        return m2.add(h.multiply(q));
+    }
+
+    /**
+     * Indique si l'exponentiation privée passe par les restes chinois
+     */
+    public boolean utiliseCRT() {
+        return p != null;
+    }
+
+    /**
+     * Paramètres CRT (null pour une clé publique ou une ancienne clé privée)
+     */
+    public BigInteger getP() {
+        return this.p;
+    }
+
+    public BigInteger getQ() {
+        return this.q;
+    }
+
+    public BigInteger getDP() {
+        return this.dP;
+    }
+
+    public BigInteger getDQ() {
+        return this.dQ;
+    }
+
+    public BigInteger getQInv() {
+        return this.qInv;
+    }
+
+    public BigInteger getN() {
+        return this.n;
+    }
+
+    public BigInteger getExposant() {
+        return this.exposant;
+    }
+
+    public boolean estPublique() {
+        return this.estPublique;
+    }
+}
@@ -0,0 +1,58 @@
+package services.crypto;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import exceptions.CryptoException;
+
+/**
+ * Paire de clés déjà écrite dans des fichiers provisoires du répertoire des clés
+ * installer() les renomme à leur place définitive (renommage atomique dans le même répertoire),
+ * abandonner() les supprime : les clés d'un compte ne sont visibles qu'une fois le compte créé
+ */
+public class ClesEnAttente {
+    private final String nomUtilisateur;
+    private final Path provisoirePublique;
+    private final Path provisoirePrivee;
+    private final Path publique;
+    private final Path privee;
+
+    ClesEnAttente(String nomUtilisateur, Path provisoirePublique, Path provisoirePrivee, Path publique, Path privee) {
+        this.nomUtilisateur = nomUtilisateur;
+        this.provisoirePublique = provisoirePublique;
+        this.provisoirePrivee = provisoirePrivee;
+        this.publique = publique;
+        this.privee = privee;
+    }
+
+    /**
+     * Met les clés en place ; la clé privée d'abord, pour qu'un message chiffré avec la clé publique soit lisible
+     */
+    public void installer() throws CryptoException {
+        try {
+            Files.move(provisoirePrivee, privee, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(provisoirePublique, publique, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            abandonner();
+            throw new CryptoException("Erreur lors de l'installation des clés de " + nomUtilisateur, e);
+        }
+    }
+
+    /**
+     * Supprime les fichiers provisoires encore présents
+     */
+    public void abandonner() {
+        try {
+            Files.deleteIfExists(provisoirePublique);
+            Files.deleteIfExists(provisoirePrivee);
+        } catch (IOException e) {
+            System.err.println("Fichier de clé provisoire non supprimé: " + e.getMessage());
+        }
+    }
+
+    public String getNomUtilisateur() {
+        return this.nomUtilisateur;
+    }
+}
@@ -0,0 +1,52 @@
+package services.crypto;
+
+import exceptions.CryptoException;
+
+/**
+ * Contrat commun aux moteurs de chiffrement RSA utilisés par CryptoManager
+ * Chaque implémentation travaille à partir du nom d'utilisateur et retrouve
+ * elle-même les fichiers de clés correspondants
+ */
+public interface CryptoBackend {
+
+    /**
+     * Génère une paire de clés RSA (publique et privée) pour un utilisateur
+     */
+    void genererCles(String nomUtilisateur) throws CryptoException;
+
+    /**
+     * Génère une paire de clés RSA sans l'enregistrer (pré-génération, voir FabriqueCles)
+     */
+    PaireCles genererPaire() throws CryptoException;
+
+    /**
+     * Génère une paire de clés dont le module fait le nombre de bits demandé, sans l'enregistrer
+     * Seul le moteur Java produit des clés de taille réelle (2048, 3072 bits) : le module C
+     * calcule sur des int et ne génère que ses propres petites clés
+     */
+    default PaireCles genererPaire(int bits) throws CryptoException {
+        throw new CryptoException("Ce moteur ne génère pas de clés de " + bits + " bits");
+    }
+
+    /**
+     * Chiffre un message avec la clé publique du destinataire
+     */
+    String chiffrer(String nomDestinataire, String message) throws CryptoException;
+
+    /**
+     * Déchiffre un message avec la clé privée de l'utilisateur
+     */
+    String dechiffrer(String nomUtilisateur, String contenuChiffre) throws CryptoException;
+
+    /**
+     * Oublie les clés d'un utilisateur gardées en mémoire, après l'écriture de nouveaux fichiers
+     */
+    default void invaliderCles(String nomUtilisateur) {
+    }
+
+    /**
+     * Libère les ressources du moteur (processus, threads)
+     */
+    default void fermer() {
+    }
+}
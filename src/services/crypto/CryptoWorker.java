@@ -0,0 +1,102 @@
+package services.crypto;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import exceptions.CryptoException;
+
+/**
+ * Processus C ./crypto lancé en mode "serve" et gardé ouvert entre les requêtes
+ * Les échanges suivent le protocole encadré décrit dans src/c/crypto.h
+ * Une instance ne traite qu'une requête à la fois
+ */
+public class CryptoWorker {
+    // Codes d'opération et de réponse du protocole
+    static final byte OPERATION_GENERER = 'G';
+    static final byte OPERATION_CHIFFRER = 'C';
+    static final byte OPERATION_DECHIFFRER = 'D';
+    private static final int REPONSE_OK = 0;
+    private static final int REPONSE_ERREUR = 1;
+    // Taille maximale acceptée pour une réponse : le chiffré d'un champ de 64 Mio (limite du module C)
+    private static final int TAILLE_REPONSE_MAX = 256 * 1024 * 1024;
+
+    private final Process process;
+    private final DataOutputStream requetes;
+    private final DataInputStream reponses;
+    private boolean enErreur;
+
+    /**
+     * Lance un processus serveur à partir de l'exécutable donné
+     */
+    public CryptoWorker(String executable) throws CryptoException {
+        try {
+            ProcessBuilder pb = new ProcessBuilder(executable, "serve");
+            // Les messages d'état du module C restent visibles dans le terminal
+            pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+            this.process = pb.start();
+        } catch (IOException e) {
+            throw new CryptoException("Impossible de lancer le module C: " + e.getMessage(), e);
+        }
+        this.requetes = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+        this.reponses = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+    }
+
+    /**
+     * Envoie une requête et retourne le champ de réponse
+     */
+    public synchronized byte[] executer(byte operation, String premier, String second) throws CryptoException {
+        try {
+            requetes.writeByte(operation);
+            ecrireChamp(premier);
+            ecrireChamp(second);
+            requetes.flush();
+
+            int statut = reponses.readUnsignedByte();
+            int longueur = reponses.readInt();
+            // Valeurs impossibles : le flux est désynchronisé
+            if ((statut != REPONSE_OK && statut != REPONSE_ERREUR) || longueur < 0 || longueur > TAILLE_REPONSE_MAX) {
+                throw new IOException("réponse invalide (statut " + statut + ", longueur " + longueur + ")");
+            }
+            byte[] donnees = new byte[longueur];
+            reponses.readFully(donnees);
+
+            if (statut != REPONSE_OK) {
+                throw new CryptoException(new String(donnees, StandardCharsets.UTF_8));
+            }
+            return donnees;
+        } catch (IOException e) {
+            // Flux désynchronisé ou processus arrêté: ce processus ne doit plus servir
+            enErreur = true;
+            throw new CryptoException("Erreur de communication avec le module C: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Indique si le processus peut encore traiter des requêtes
+     */
+    public boolean estDisponible() {
+        return !enErreur && process.isAlive();
+    }
+
+    /**
+     * Ferme l'entrée du processus, ce qui termine sa boucle de service
+     */
+    public void arreter() {
+        try {
+            requetes.close();
+        } catch (IOException e) {
+            // Processus déjà arrêté
+        }
+        process.destroy();
+    }
+
+    private void ecrireChamp(String valeur) throws IOException {
+        byte[] octets = valeur.getBytes(StandardCharsets.UTF_8);
+        requetes.writeInt(octets.length);
+        requetes.write(octets);
+    }
+}
@@ -0,0 +1,121 @@
+package services.crypto;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import exceptions.CryptoException;
+
+/**
+ * Chiffrement hybride: le message est chiffré en AES-GCM avec une clé de session aléatoire,
+ * seule cette clé est chiffrée en RSA avec la clé publique du destinataire
+ * Format: ENTETE_HYBRIDE base64(iv) ":" base64(chiffré AES + tag) ":" clé de session chiffrée en RSA
+ */
+public final class EnveloppeHybride {
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int TAILLE_CLE_BITS = 256;
+    private static final int TAILLE_IV = 12;
+    private static final int TAILLE_TAG_BITS = 128;
+    // L'en-tête est authentifié avec le message: il ne peut pas être modifié sans détection
+    private static final byte[] DONNEES_ASSOCIEES = FormatChiffre.ENTETE_HYBRIDE.getBytes(StandardCharsets.US_ASCII);
+
+    private static final SecureRandom ALEATOIRE = new SecureRandom();
+
+    /**
+     * Corps d'un message chiffré en AES, avec la clé de session encore en clair
+     * Un même corps peut être enveloppé pour plusieurs destinataires
+     */
+    public static final class Corps {
+        private final byte[] cleSession;
+        private final String iv;
+        private final String chiffre;
+
+        private Corps(byte[] cleSession, String iv, String chiffre) {
+            this.cleSession = cleSession;
+            this.iv = iv;
+            this.chiffre = chiffre;
+        }
+
+        /**
+         * Clé de session à chiffrer en RSA pour chaque destinataire (texte base64)
+         */
+        public String getCleSession() {
+            return Base64.getEncoder().encodeToString(cleSession);
+        }
+
+        /**
+         * Assemble l'enveloppe finale avec la clé de session chiffrée pour un destinataire
+         */
+        public String envelopper(String cleSessionChiffree) {
+            return FormatChiffre.ENTETE_HYBRIDE + iv + ":" + chiffre + ":" + cleSessionChiffree;
+        }
+    }
+
+    private EnveloppeHybride() {
+    }
+
+    /**
+     * Chiffre un message avec une nouvelle clé de session AES
+     */
+    public static Corps chiffrerCorps(String message) throws CryptoException {
+        try {
+            KeyGenerator generateur = KeyGenerator.getInstance("AES");
+            generateur.init(TAILLE_CLE_BITS, ALEATOIRE);
+            SecretKey cle = generateur.generateKey();
+
+            byte[] iv = new byte[TAILLE_IV];
+            ALEATOIRE.nextBytes(iv);
+
+            Cipher aes = Cipher.getInstance(TRANSFORMATION);
+            aes.init(Cipher.ENCRYPT_MODE, cle, new GCMParameterSpec(TAILLE_TAG_BITS, iv));
+            aes.updateAAD(DONNEES_ASSOCIEES);
+            byte[] chiffre = aes.doFinal(message.getBytes(StandardCharsets.UTF_8));
+
+            Base64.Encoder base64 = Base64.getEncoder();
+            return new Corps(cle.getEncoded(), base64.encodeToString(iv), base64.encodeToString(chiffre));
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("Erreur lors du chiffrement AES: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Chiffre un message pour un destinataire, la clé de session passant par le moteur RSA
+     */
+    public static String chiffrer(CryptoBackend backend, String nomDestinataire, String message) throws CryptoException {
+        Corps corps = chiffrerCorps(message);
+        return corps.envelopper(backend.chiffrer(nomDestinataire, corps.getCleSession()));
+    }
+
+    /**
+     * Déchiffre une enveloppe: la clé de session est d'abord déchiffrée en RSA
+     */
+    public static String dechiffrer(CryptoBackend backend, String nomUtilisateur, String enveloppe) throws CryptoException {
+        String[] parties = enveloppe.substring(FormatChiffre.ENTETE_HYBRIDE.length()).split(":", 3);
+        if (parties.length != 3) {
+            throw new CryptoException("Enveloppe hybride invalide");
+        }
+
+        String cleSession = backend.dechiffrer(nomUtilisateur, parties[2]);
+        try {
+            Base64.Decoder base64 = Base64.getDecoder();
+            SecretKeySpec cle = new SecretKeySpec(base64.decode(cleSession), "AES");
+
+            Cipher aes = Cipher.getInstance(TRANSFORMATION);
+            aes.init(Cipher.DECRYPT_MODE, cle, new GCMParameterSpec(TAILLE_TAG_BITS, base64.decode(parties[0])));
+            aes.updateAAD(DONNEES_ASSOCIEES);
+            byte[] clair = aes.doFinal(base64.decode(parties[1]));
+            return new String(clair, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new CryptoException("Enveloppe hybride invalide (base64)", e);
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("Message altéré ou mauvaise clé: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package services.crypto;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import exceptions.CryptoException;
+
+/**
+ * Réserve de paires de clés RSA générées d'avance par des threads de fond
+ * La création d'un compte prend une paire prête dans la file bornée au lieu d'attendre
+ * la recherche de nombres premiers ; si la réserve est vide, la paire est générée sur place
+ * Les threads s'arrêtent d'eux-mêmes quand la file est pleine et reprennent dès qu'une paire est prise
+ */
+public class FabriqueCles {
+    public static final int CAPACITE_DEFAUT = 8;
+
+    private final CryptoBackend backend;
+    private final BlockingQueue<PaireCles> reserve;
+    private final ExecutorService generateurs;
+    private final int threads;
+
+    // Métriques
+    private final AtomicLong generees = new AtomicLong();
+    private final AtomicLong dureeGenerationNanos = new AtomicLong();
+    private final AtomicLong servies = new AtomicLong();
+    private final AtomicLong manques = new AtomicLong();
+    private final AtomicLong echecs = new AtomicLong();
+    private final AtomicLong deposees = new AtomicLong();
+    private final long debutNanos = System.nanoTime();
+
+    public FabriqueCles(CryptoBackend backend) {
+        this(backend, CAPACITE_DEFAUT, Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    public FabriqueCles(CryptoBackend backend, int capacite, int threads) {
+        this.backend = backend;
+        this.reserve = new ArrayBlockingQueue<>(capacite);
+        this.threads = threads;
+        this.generateurs = Executors.newFixedThreadPool(threads, tache -> {
+            Thread thread = new Thread(tache, "fabrique-cles");
+            thread.setDaemon(true);
+            // La génération ne doit pas ralentir les opérations interactives
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        for (int i = 0; i < threads; i++) {
+            generateurs.execute(this::remplir);
+        }
+    }
+
+    /**
+     * Retourne une paire prête, ou en génère une immédiatement si la réserve est vide
+     */
+    public PaireCles prendre() throws CryptoException {
+        PaireCles paire = reserve.poll();
+        if (paire != null) {
+            servies.incrementAndGet();
+            return paire;
+        }
+        manques.incrementAndGet();
+        return backend.genererPaire();
+    }
+
+    /**
+     * Nombre de paires prêtes dans la réserve
+     */
+    public int getProfondeur() {
+        return reserve.size();
+    }
+
+    public int getCapacite() {
+        return reserve.size() + reserve.remainingCapacity();
+    }
+
+    public long getGenerees() {
+        return generees.get();
+    }
+
+    /**
+     * Paires prises dans la réserve, et paires générées sur place faute de réserve
+     */
+    public long getServies() {
+        return servies.get();
+    }
+
+    public long getManques() {
+        return manques.get();
+    }
+
+    public long getEchecs() {
+        return echecs.get();
+    }
+
+    /**
+     * Durée moyenne de génération d'une paire par un thread de fond (ms)
+     */
+    public double getDureeMoyenneMs() {
+        long n = generees.get();
+        return n == 0 ? 0 : dureeGenerationNanos.get() / 1e6 / n;
+    }
+
+    /**
+     * Débit de remplissage mesuré : paires déposées dans la réserve par seconde depuis le démarrage
+     * (temps d'attente compris quand la réserve est pleine)
+     */
+    public double getDebitRemplissage() {
+        double secondes = (System.nanoTime() - debutNanos) / 1e9;
+        return secondes <= 0 ? 0 : deposees.get() / secondes;
+    }
+
+    /**
+     * Débit maximal estimé si tous les threads génèrent sans arrêt (paires/s), d'après la durée moyenne
+     */
+    public double getDebitTheorique() {
+        double moyenneMs = getDureeMoyenneMs();
+        return moyenneMs == 0 ? 0 : threads * 1000 / moyenneMs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Réserve de clés: %d/%d prêtes, %d servies, %d générées à la demande, "
+                + "%.1f ms par paire, remplissage %.1f paires/s (maximum estimé %.1f)",
+            getProfondeur(), getCapacite(), getServies(), getManques(), getDureeMoyenneMs(),
+            getDebitRemplissage(), getDebitTheorique());
+    }
+
+    /**
+     * Arrête les threads de fond ; les paires en réserve sont abandonnées
+     */
+    public void fermer() {
+        generateurs.shutdownNow();
+        reserve.clear();
+    }
+
+    /**
+     * Boucle d'un thread de fond : génère puis dépose (bloque tant que la réserve est pleine)
+     */
+    private void remplir() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long debut = System.nanoTime();
+                PaireCles paire;
+                try {
+                    paire = backend.genererPaire();
+                } catch (CryptoException e) {
+                    if (generateurs.isShutdown()) {
+                        // Moteur arrêté pendant la génération (fermeture)
+                        return;
+                    }
+                    echecs.incrementAndGet();
+                    System.err.println("Erreur lors de la pré-génération des clés: " + e.getMessage());
+                    // Évite de boucler sur une erreur persistante (ex: exécutable absent)
+                    Thread.sleep(1000);
+                    continue;
+                }
+                dureeGenerationNanos.addAndGet(System.nanoTime() - debut);
+                generees.incrementAndGet();
+                reserve.put(paire);
+                deposees.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
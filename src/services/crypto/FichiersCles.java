@@ -0,0 +1,81 @@
+package services.crypto;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import exceptions.CryptoException;
+
+/**
+ * Résout les chemins des fichiers de clés RSA d'un utilisateur
+ * Format: <repertoire><nom>_public.key et <repertoire><nom>_private.key
+ */
+public class FichiersCles {
+    // Répertoire de stockage des clés (avec le séparateur final)
+    private final String repertoire;
+
+    /**
+     * Constructeur avec le répertoire des clés (ex: "keys/")
+     */
+    public FichiersCles(String repertoire) {
+        this.repertoire = repertoire;
+    }
+
+    /**
+     * Crée le répertoire des clés s'il n'existe pas
+     */
+    public void creerRepertoire() {
+        new File(repertoire).mkdir();
+    }
+
+    /**
+     * Retourne le chemin vers la clé publique d'un utilisateur
+     */
+    public String clePublique(String nomUtilisateur) {
+        return repertoire + nomUtilisateur + "_public.key";
+    }
+
+    /**
+     * Retourne le chemin vers la clé privée d'un utilisateur
+     */
+    public String clePrivee(String nomUtilisateur) {
+        return repertoire + nomUtilisateur + "_private.key";
+    }
+
+    /**
+     * Écrit une paire dans deux fichiers provisoires du répertoire des clés, à installer ou abandonner ensuite
+     */
+    public ClesEnAttente ecrireEnAttente(String nomUtilisateur, PaireCles paire) throws CryptoException {
+        Path publique = null;
+        Path privee = null;
+        try {
+            publique = Files.createTempFile(Paths.get(repertoire), ".cle-", ".tmp");
+            privee = Files.createTempFile(Paths.get(repertoire), ".cle-", ".tmp");
+            paire.getPublique().ecrire(publique.toString());
+            paire.getPrivee().ecrire(privee.toString());
+        } catch (IOException | CryptoException e) {
+            new ClesEnAttente(nomUtilisateur, publique, privee, null, null).abandonner();
+            throw e instanceof CryptoException ? (CryptoException) e
+                : new CryptoException("Impossible de créer un fichier de clé provisoire: " + e.getMessage(), e);
+        }
+        return new ClesEnAttente(nomUtilisateur, publique, privee,
+            Paths.get(clePublique(nomUtilisateur)), Paths.get(clePrivee(nomUtilisateur)));
+    }
+
+    /**
+     * Crée un fichier de clé temporaire (hors du répertoire des clés), à supprimer après usage
+     */
+    public static File creerFichierTemporaire() throws CryptoException {
+        try {
+            return File.createTempFile("cle_", ".key");
+        } catch (IOException e) {
+            throw new CryptoException("Impossible de créer un fichier temporaire: " + e.getMessage(), e);
+        }
+    }
+
+    public String getRepertoire() {
+        return this.repertoire;
+    }
+}
@@ -0,0 +1,71 @@
+package services.crypto;
+
+/**
+ * Formats de contenu chiffré stockés dans Messages.contenu_chiffre
+ * Le format est reconnu grâce à son en-tête; un contenu sans en-tête est au format historique
+ */
+public final class FormatChiffre {
+    /**
+     * En-tête du format par blocs: "RSA2:" suivi du base64 de
+     * [longueur du clair sur 4 octets big-endian][blocs chiffrés de taille fixe]
+     */
+    public static final String ENTETE_BLOCS = "RSA2:";
+
+    /**
+     * En-tête du format hybride (clé de session RSA + message AES-GCM), voir EnveloppeHybride
+     */
+    public static final String ENTETE_HYBRIDE = "HYB1:";
+
+    /**
+     * Versions de format connues
+     */
+    public enum Version {
+        // Un entier décimal par octet du message, séparés par des espaces
+        HISTORIQUE,
+        // Octets regroupés en blocs aussi grands que le module le permet, encodés en base64
+        BLOCS,
+        // Clé de session chiffrée en RSA, message chiffré en AES-GCM
+        HYBRIDE
+    }
+
+    private FormatChiffre() {
+    }
+
+    /**
+     * Détermine le format d'un contenu chiffré à partir de son en-tête
+     */
+    public static Version detecter(String contenuChiffre) {
+        if (contenuChiffre.startsWith(ENTETE_BLOCS)) {
+            return Version.BLOCS;
+        }
+        if (contenuChiffre.startsWith(ENTETE_HYBRIDE)) {
+            return Version.HYBRIDE;
+        }
+        return Version.HISTORIQUE;
+    }
+
+    /**
+     * Nombre d'octets de message par bloc: tout bloc doit rester strictement inférieur à n
+     */
+    public static int octetsParBloc(CleRSA cle) {
+        return (cle.getN().bitLength() - 1) / 8;
+    }
+
+    /**
+     * Taille fixe d'un bloc chiffré (valeur < n écrite en big-endian)
+     */
+    public static int octetsParBlocChiffre(CleRSA cle) {
+        return (cle.getN().bitLength() + 7) / 8;
+    }
+
+    /**
+     * Le format historique perd les fins de ligne (relecture ligne par ligne du fichier déchiffré):
+     * elles sont retirées pour que tous les moteurs rendent le même texte
+     */
+    public static String normaliserClair(String contenuChiffre, String clair) {
+        if (detecter(contenuChiffre) != Version.HISTORIQUE) {
+            return clair;
+        }
+        return clair.replace("\r", "").replace("\n", "");
+    }
+}
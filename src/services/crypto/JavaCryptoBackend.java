@@ -0,0 +1,79 @@
+package services.crypto;
+
+import exceptions.CryptoException;
+
+/**
+ * Moteur de chiffrement exécuté dans la JVM (aucun processus externe)
+ * Produit exactement les mêmes chiffrés que l'exécutable C
+ * Les clés lues sont gardées en cache tant que leur fichier ne change pas
+ * Par défaut (taille 0), les nouvelles clés sont générées comme dans le module C : petits modules
+ * lisibles par tous les moteurs ; une taille réelle (ex: 2048) n'est utilisable qu'avec ce moteur
+ */
+public class JavaCryptoBackend implements CryptoBackend {
+    public static final int BITS_DEFAUT = 0;
+
+    private final FichiersCles fichiersCles;
+    private final CacheCles clesPubliques;
+    private final CacheCles clesPrivees;
+    private final int bitsCles;
+
+    public JavaCryptoBackend(FichiersCles fichiersCles) {
+        this(fichiersCles, CacheCles.CAPACITE_DEFAUT, BITS_DEFAUT);
+    }
+
+    public JavaCryptoBackend(FichiersCles fichiersCles, int capaciteCache, int bitsCles) {
+        this.fichiersCles = fichiersCles;
+        this.bitsCles = bitsCles;
+        this.clesPubliques = new CacheCles(fichiersCles::clePublique, true, capaciteCache);
+        this.clesPrivees = new CacheCles(fichiersCles::clePrivee, false, capaciteCache);
+    }
+
+    @Override
+    public void genererCles(String nomUtilisateur) throws CryptoException {
+        PaireCles paire = genererPaire();
+        paire.getPublique().ecrire(fichiersCles.clePublique(nomUtilisateur));
+        paire.getPrivee().ecrire(fichiersCles.clePrivee(nomUtilisateur));
+        invaliderCles(nomUtilisateur);
+    }
+
+    @Override
+    public void invaliderCles(String nomUtilisateur) {
+        clesPubliques.invalider(nomUtilisateur);
+        clesPrivees.invalider(nomUtilisateur);
+    }
+
+    @Override
+    public PaireCles genererPaire() throws CryptoException {
+        return bitsCles > 0 ? MoteurRSA.genererCles(bitsCles) : MoteurRSA.genererCles();
+    }
+
+    @Override
+    public PaireCles genererPaire(int bits) throws CryptoException {
+        return MoteurRSA.genererCles(bits);
+    }
+
+    @Override
+    public String chiffrer(String nomDestinataire, String message) throws CryptoException {
+        return MoteurRSA.chiffrer(clesPubliques.get(nomDestinataire), message);
+    }
+
+    @Override
+    public String dechiffrer(String nomUtilisateur, String contenuChiffre) throws CryptoException {
+        return MoteurRSA.dechiffrer(clesPrivees.get(nomUtilisateur), contenuChiffre);
+    }
+
+    /**
+     * Taille des clés générées par défaut (0 : clés compatibles avec le module C)
+     */
+    public int getBitsCles() {
+        return this.bitsCles;
+    }
+
+    public CacheCles getClesPubliques() {
+        return this.clesPubliques;
+    }
+
+    public CacheCles getClesPrivees() {
+        return this.clesPrivees;
+    }
+}
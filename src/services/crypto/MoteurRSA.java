@@ -0,0 +1,408 @@
+package services.crypto;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+import exceptions.CryptoException;
+
+/**
+ * Moteur RSA en Java pur, reproduisant octet pour octet le module C (src/c/crypto.c)
+ * Les messages sont chiffrés au format par blocs (FormatChiffre.ENTETE_BLOCS);
+ * le format historique, un entier décimal par octet, reste lisible
+ */
+public final class MoteurRSA {
+    // Exposant public standard, identique au module C
+    private static final int EXPOSANT_PUBLIC = 65537;
+
+    // Plus petite taille de module acceptée par genererCles(bits)
+    public static final int BITS_MIN = 64;
+
+    // Tours de Miller-Rabin par candidat (probabilité d'erreur < 4^-40)
+    private static final int TOURS_MILLER_RABIN = 40;
+
+    // Petits premiers éliminés avant Miller-Rabin, et leur produit (tient dans un long)
+    private static final int[] PETITS_PREMIERS = { 2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47 };
+    private static final BigInteger PRODUIT_PETITS_PREMIERS = BigInteger.valueOf(614889782588491410L);
+
+    private static final SecureRandom ALEATOIRE = new SecureRandom();
+
+    private MoteurRSA() {
+    }
+
+    /**
+     * Calcule (base^exp) mod mod avec la même arithmétique signée que exp_modulaire en C
+     */
+    public static long expModulaire(long base, long exp, long mod) {
+        long resultat = 1;
+        base = base % mod;
+
+        while (exp > 0) {
+            if (exp % 2 == 1)
+                resultat = (resultat * base) % mod;
+            exp = exp >> 1;
+            base = (base * base) % mod;
+        }
+        return resultat;
+    }
+
+    /**
+     * Calcule (c^d) mod n par les restes chinois, comme exp_privee en C (c positif)
+     */
+    public static long expPrivee(long c, long p, long q, long dP, long dQ, long qInv) {
+        long m1 = expModulaire(c, dP, p);
+        long m2 = expModulaire(c, dQ, q);
+
+        // Recombinaison de Garner : m = m2 + q * (qInv * (m1 - m2) mod p)
+        long h = Math.floorMod(m1 - m2, p);
+        h = (qInv * h) % p;
+        return m2 + h * q;
+    }
+
+    /**
+     * Chiffre un message au format par blocs (équivalent de chiffrer_avec_cle)
+     * Chaque bloc regroupe autant d'octets du message que le module le permet
+     */
+    public static String chiffrer(CleRSA cle, String message) {
+        int octetsParBloc = FormatChiffre.octetsParBloc(cle);
+        if (octetsParBloc < 1) {
+            // Module trop petit pour contenir un octet entier par bloc
+            return chiffrerHistorique(cle, message);
+        }
+        int octetsParBlocChiffre = FormatChiffre.octetsParBlocChiffre(cle);
+
+        byte[] clair = message.getBytes(StandardCharsets.UTF_8);
+        int nombreBlocs = (clair.length + octetsParBloc - 1) / octetsParBloc;
+        ByteBuffer chiffre = ByteBuffer.allocate(4 + nombreBlocs * octetsParBlocChiffre);
+        chiffre.putInt(clair.length);
+
+        boolean arithmetiqueLong = cle.tientDansLong();
+        long n = arithmetiqueLong ? cle.getN().longValue() : 0;
+        long e = arithmetiqueLong ? cle.getExposant().longValue() : 0;
+
+        for (int debut = 0; debut < clair.length; debut += octetsParBloc) {
+            int fin = Math.min(debut + octetsParBloc, clair.length);
+            if (arithmetiqueLong) {
+                long bloc = 0;
+                for (int i = debut; i < fin; i++) {
+                    bloc = (bloc << 8) | (clair[i] & 0xFF);
+                }
+                ecrireBloc(chiffre, expModulaire(bloc, e, n), octetsParBlocChiffre);
+            } else {
+                BigInteger bloc = new BigInteger(1, Arrays.copyOfRange(clair, debut, fin));
+                ecrireBloc(chiffre, cle.exponentier(bloc), octetsParBlocChiffre);
+            }
+        }
+
+        return FormatChiffre.ENTETE_BLOCS + Base64.getEncoder().encodeToString(chiffre.array());
+    }
+
+    /**
+     * Déchiffre un contenu quel que soit son format (blocs ou historique)
+     */
+    public static String dechiffrer(CleRSA cle, String contenuChiffre) throws CryptoException {
+        if (FormatChiffre.detecter(contenuChiffre) == FormatChiffre.Version.BLOCS) {
+            return dechiffrerBlocs(cle, contenuChiffre.substring(FormatChiffre.ENTETE_BLOCS.length()));
+        }
+        return dechiffrerHistorique(cle, contenuChiffre);
+    }
+
+    /**
+     * Déchiffre le base64 d'un contenu au format par blocs
+     */
+    private static String dechiffrerBlocs(CleRSA cle, String base64) throws CryptoException {
+        ByteBuffer chiffre;
+        try {
+            chiffre = ByteBuffer.wrap(Base64.getDecoder().decode(base64));
+        } catch (IllegalArgumentException ex) {
+            throw new CryptoException("Contenu chiffré invalide (base64)", ex);
+        }
+
+        int octetsParBloc = FormatChiffre.octetsParBloc(cle);
+        int octetsParBlocChiffre = FormatChiffre.octetsParBlocChiffre(cle);
+        if (chiffre.remaining() < 4 || octetsParBloc < 1) {
+            throw new CryptoException("Contenu chiffré invalide ou clé inadaptée");
+        }
+        int longueur = chiffre.getInt();
+        int nombreBlocs = (int) (((long) longueur + octetsParBloc - 1) / octetsParBloc);
+        if (longueur < 0 || chiffre.remaining() != (long) nombreBlocs * octetsParBlocChiffre) {
+            throw new CryptoException("Contenu chiffré tronqué ou clé inadaptée");
+        }
+
+        boolean arithmetiqueLong = cle.tientDansLong();
+        long n = arithmetiqueLong ? cle.getN().longValue() : 0;
+        long d = arithmetiqueLong ? cle.getExposant().longValue() : 0;
+        boolean crt = arithmetiqueLong && cle.utiliseCRT();
+        long p = crt ? cle.getP().longValue() : 0;
+        long q = crt ? cle.getQ().longValue() : 0;
+        long dP = crt ? cle.getDP().longValue() : 0;
+        long dQ = crt ? cle.getDQ().longValue() : 0;
+        long qInv = crt ? cle.getQInv().longValue() : 0;
+        byte[] bloc = new byte[octetsParBlocChiffre];
+        byte[] clair = new byte[longueur];
+
+        for (int debut = 0; debut < longueur; debut += octetsParBloc) {
+            int taille = Math.min(octetsParBloc, longueur - debut);
+            chiffre.get(bloc);
+            if (arithmetiqueLong) {
+                long valeur = 0;
+                for (byte octet : bloc) {
+                    valeur = (valeur << 8) | (octet & 0xFF);
+                }
+                long m = crt ? expPrivee(valeur, p, q, dP, dQ, qInv) : expModulaire(valeur, d, n);
+                for (int i = taille - 1; i >= 0; i--) {
+                    clair[debut + i] = (byte) m;
+                    m >>>= 8;
+                }
+            } else {
+                byte[] m = cle.exponentier(new BigInteger(1, bloc)).toByteArray();
+                // Alignement à droite sur la taille du bloc (zéros de tête ou octet de signe)
+                int copie = Math.min(m.length, taille);
+                System.arraycopy(m, m.length - copie, clair, debut + taille - copie, copie);
+            }
+        }
+
+        return new String(clair, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Écrit une valeur chiffrée sur une taille fixe en big-endian
+     */
+    private static void ecrireBloc(ByteBuffer sortie, long valeur, int taille) {
+        for (int i = taille - 1; i >= 0; i--) {
+            sortie.put((byte) (valeur >>> (8 * i)));
+        }
+    }
+
+    private static void ecrireBloc(ByteBuffer sortie, BigInteger valeur, int taille) {
+        byte[] octets = valeur.toByteArray();
+        int copie = Math.min(octets.length, taille);
+        for (int i = copie; i < taille; i++) {
+            sortie.put((byte) 0);
+        }
+        sortie.put(octets, octets.length - copie, copie);
+    }
+
+    /**
+     * Chiffre un message octet par octet au format historique
+     * Les octets sont signés comme le type char du C, d'où des chiffrés parfois négatifs
+     */
+    public static String chiffrerHistorique(CleRSA cle, String message) {
+        byte[] octets = message.getBytes(StandardCharsets.UTF_8);
+        StringBuilder contenu = new StringBuilder(octets.length * 7);
+
+        if (cle.tientDansLong()) {
+            long n = cle.getN().longValue();
+            long e = cle.getExposant().longValue();
+            for (byte octet : octets) {
+                contenu.append(expModulaire(octet, e, n)).append(' ');
+            }
+        } else {
+            for (byte octet : octets) {
+                BigInteger m = BigInteger.valueOf(octet & 0xFF);
+                contenu.append(cle.exponentier(m)).append(' ');
+            }
+        }
+
+        // Le module C termine chaque valeur par un espace, retiré à la relecture
+        return contenu.toString().trim();
+    }
+
+    /**
+     * Déchiffre une suite d'entiers décimaux (format historique)
+     * La lecture s'arrête au premier élément invalide, comme fscanf("%lld")
+     */
+    public static String dechiffrerHistorique(CleRSA cle, String contenuChiffre) {
+        ByteArrayOutputStream octets = new ByteArrayOutputStream(contenuChiffre.length() / 4);
+        boolean arithmetiqueLong = cle.tientDansLong();
+        long n = arithmetiqueLong ? cle.getN().longValue() : 0;
+        long d = arithmetiqueLong ? cle.getExposant().longValue() : 0;
+
+        int i = 0;
+        int longueur = contenuChiffre.length();
+        while (true) {
+            // Saut des espaces entre les valeurs
+            while (i < longueur && Character.isWhitespace(contenuChiffre.charAt(i))) i++;
+
+            int debut = i;
+            if (i < longueur && (contenuChiffre.charAt(i) == '-' || contenuChiffre.charAt(i) == '+')) i++;
+            int debutChiffres = i;
+            while (i < longueur && Character.isDigit(contenuChiffre.charAt(i))) i++;
+            if (i == debutChiffres) break;
+
+            String valeur = contenuChiffre.substring(debut, i);
+            if (arithmetiqueLong) {
+                octets.write((byte) expModulaire(Long.parseLong(valeur), d, n));
+            } else {
+                octets.write(cle.exponentier(new BigInteger(valeur)).intValue());
+            }
+        }
+
+        return sansFinsDeLigne(new String(octets.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Génère une paire de clés avec les mêmes intervalles de nombres premiers que le module C
+     */
+    public static PaireCles genererCles() throws CryptoException {
+        int p = genererPremier(50, 150);
+        int q = genererPremier(150, 250);
+        int n = p * q;
+        int phi = (p - 1) * (q - 1);
+
+        int e = EXPOSANT_PUBLIC;
+        while (pgcd(e, phi) != 1) {
+            e = 3 + ALEATOIRE.nextInt(phi - 3);
+        }
+
+        BigInteger d;
+        try {
+            d = BigInteger.valueOf(e).modInverse(BigInteger.valueOf(phi));
+        } catch (ArithmeticException ex) {
+            throw new CryptoException("Erreur, impossible de calculer d", ex);
+        }
+
+        BigInteger module = BigInteger.valueOf(n);
+        return new PaireCles(
+            new CleRSA(module, BigInteger.valueOf(e), true),
+            new CleRSA(module, d, BigInteger.valueOf(p), BigInteger.valueOf(q))
+        );
+    }
+
+    /**
+     * Génère une paire de clés dont le module n fait exactement le nombre de bits demandé
+     * (ex: 2048 ou 3072), avec e = 65537 ; p et q sont cherchés par Miller-Rabin
+     * La clé privée garde p et q pour le déchiffrement par les restes chinois
+     */
+    public static PaireCles genererCles(int bits) throws CryptoException {
+        if (bits < BITS_MIN) {
+            throw new CryptoException("Taille de clé trop petite: " + bits + " bits (minimum " + BITS_MIN + ")");
+        }
+
+        BigInteger e = BigInteger.valueOf(EXPOSANT_PUBLIC);
+        BigInteger p;
+        BigInteger q;
+        BigInteger n;
+        do {
+            p = genererPremier(bits - bits / 2, e);
+            q = genererPremier(bits / 2, e);
+            n = p.multiply(q);
+        } while (p.equals(q) || n.bitLength() != bits);
+
+        // p - 1 et q - 1 sont premiers avec e, donc e est inversible modulo phi
+        BigInteger phi = p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE));
+        BigInteger d = e.modInverse(phi);
+
+        return new PaireCles(
+            new CleRSA(n, e, true),
+            new CleRSA(n, d, p, q)
+        );
+    }
+
+    /**
+     * Test probabiliste de Miller-Rabin, précédé d'un crible par les petits premiers
+     * Un nombre composé passe un tour avec une probabilité inférieure à 1/4
+     */
+    public static boolean estProbablementPremier(BigInteger n, int tours) {
+        if (n.compareTo(BigInteger.TWO) < 0) return false;
+
+        long reste = n.mod(PRODUIT_PETITS_PREMIERS).longValue();
+        for (int premier : PETITS_PREMIERS) {
+            if (reste % premier == 0) return n.equals(BigInteger.valueOf(premier));
+        }
+        if (n.bitLength() <= 11) {
+            // n < 2209 = 47², sans petit facteur : premier
+            return true;
+        }
+
+        // n - 1 = 2^s * d avec d impair
+        BigInteger nMoinsUn = n.subtract(BigInteger.ONE);
+        int s = nMoinsUn.getLowestSetBit();
+        BigInteger d = nMoinsUn.shiftRight(s);
+
+        for (int tour = 0; tour < tours; tour++) {
+            // Base aléatoire dans [2, n - 2]
+            BigInteger a;
+            do {
+                a = new BigInteger(n.bitLength(), ALEATOIRE);
+            } while (a.compareTo(BigInteger.TWO) < 0 || a.compareTo(nMoinsUn) >= 0);
+
+            BigInteger x = a.modPow(d, n);
+            if (x.equals(BigInteger.ONE) || x.equals(nMoinsUn)) continue;
+
+            boolean temoin = true;
+            for (int r = 1; r < s && temoin; r++) {
+                x = x.multiply(x).mod(n);
+                if (x.equals(nMoinsUn)) temoin = false;
+            }
+            if (temoin) return false;  // a prouve que n est composé
+        }
+        return true;
+    }
+
+    /**
+     * Nombre premier aléatoire d'exactement bits bits, dont les deux bits de poids fort sont à 1
+     * (le produit de deux tels nombres a exactement la somme de leurs tailles)
+     * et tel que p - 1 soit premier avec e
+     */
+    private static BigInteger genererPremier(int bits, BigInteger e) {
+        while (true) {
+            BigInteger candidat = new BigInteger(bits, ALEATOIRE)
+                .setBit(bits - 1).setBit(bits - 2).setBit(0);
+            if (estProbablementPremier(candidat, TOURS_MILLER_RABIN)
+                    && candidat.subtract(BigInteger.ONE).gcd(e).equals(BigInteger.ONE)) {
+                return candidat;
+            }
+        }
+    }
+
+    /**
+     * Détermine si un nombre est premier (test des diviseurs de la forme 6k±1)
+     */
+    public static boolean estPremier(int n) {
+        if (n < 2) return false;
+        if (n <= 3) return true;
+        if (n % 2 == 0 || n % 3 == 0) return false;
+
+        for (int i = 5; i * i <= n; i += 6) {
+            if (n % i == 0 || n % (i + 2) == 0) return false;
+        }
+        return true;
+    }
+
+    private static int genererPremier(int min, int max) {
+        int p;
+        do {
+            p = min + ALEATOIRE.nextInt(max - min);
+        } while (!estPremier(p));
+        return p;
+    }
+
+    private static int pgcd(int a, int b) {
+        while (b != 0) {
+            int temp = b;
+            b = a % b;
+            a = temp;
+        }
+        return a;
+    }
+
+    /**
+     * Supprime les fins de ligne, comme la relecture ligne par ligne du fichier déchiffré
+     */
+    private static String sansFinsDeLigne(String texte) {
+        if (texte.indexOf('\n') < 0 && texte.indexOf('\r') < 0) {
+            return texte;
+        }
+        StringBuilder resultat = new StringBuilder(texte.length());
+        for (int i = 0; i < texte.length(); i++) {
+            char c = texte.charAt(i);
+            if (c != '\n' && c != '\r') resultat.append(c);
+        }
+        return resultat.toString();
+    }
+}
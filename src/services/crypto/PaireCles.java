@@ -0,0 +1,22 @@
+package services.crypto;
+
+/**
+ * Paire de clés RSA (publique et privée) d'un même utilisateur
+ */
+public class PaireCles {
+    private final CleRSA publique;
+    private final CleRSA privee;
+
+    public PaireCles(CleRSA publique, CleRSA privee) {
+        this.publique = publique;
+        this.privee = privee;
+    }
+
+    public CleRSA getPublique() {
+        return this.publique;
+    }
+
+    public CleRSA getPrivee() {
+        return this.privee;
+    }
+}
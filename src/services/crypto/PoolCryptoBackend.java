@@ -0,0 +1,171 @@
+package services.crypto;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import exceptions.CryptoException;
+
+/**
+ * Moteur de chiffrement reposant sur un petit pool de processus C ./crypto gardés en vie
+ * Chaque processus garde en cache les clés déjà lues: aucun fork ni relecture de clé par message
+ * Les processus sont lancés à la demande, jusqu'à la taille maximale du pool
+ * Un processus arrêté ou désynchronisé est écarté et remplacé ; après fermer(), plus aucun n'est lancé
+ */
+public class PoolCryptoBackend implements CryptoBackend {
+    // Chemin vers l'exécutable de chiffrement
+    private static final String CRYPTO_EXECUTABLE = "./crypto";
+    // Attente maximale d'un processus libre, et intervalle entre deux vérifications du pool
+    private static final long DELAI_EMPRUNT_MS = 30_000;
+    private static final long ATTENTE_MS = 100;
+
+    private final FichiersCles fichiersCles;
+    private final int taille;
+    // Processus inactifs, prêts à recevoir une requête
+    private final BlockingQueue<CryptoWorker> disponibles = new LinkedBlockingQueue<>();
+    // Tous les processus lancés (pour l'arrêt)
+    private final List<CryptoWorker> workers = new ArrayList<>();
+    private volatile boolean ferme;
+
+    public PoolCryptoBackend(FichiersCles fichiersCles) {
+        this(fichiersCles, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public PoolCryptoBackend(FichiersCles fichiersCles, int taille) {
+        this.fichiersCles = fichiersCles;
+        this.taille = taille;
+    }
+
+    @Override
+    public void genererCles(String nomUtilisateur) throws CryptoException {
+        executer(CryptoWorker.OPERATION_GENERER,
+            fichiersCles.clePublique(nomUtilisateur),
+            fichiersCles.clePrivee(nomUtilisateur));
+    }
+
+    /**
+     * Génère les clés dans des fichiers temporaires, puis les relit
+     */
+    @Override
+    public PaireCles genererPaire() throws CryptoException {
+        File publique = FichiersCles.creerFichierTemporaire();
+        File privee = FichiersCles.creerFichierTemporaire();
+        try {
+            executer(CryptoWorker.OPERATION_GENERER, publique.getPath(), privee.getPath());
+            return new PaireCles(CleRSA.lire(publique.getPath(), true), CleRSA.lire(privee.getPath(), false));
+        } finally {
+            publique.delete();
+            privee.delete();
+        }
+    }
+
+    @Override
+    public String chiffrer(String nomDestinataire, String message) throws CryptoException {
+        byte[] resultat = executer(CryptoWorker.OPERATION_CHIFFRER,
+            fichiersCles.clePublique(nomDestinataire), message);
+        return new String(resultat, StandardCharsets.UTF_8).trim();
+    }
+
+    @Override
+    public String dechiffrer(String nomUtilisateur, String contenuChiffre) throws CryptoException {
+        byte[] resultat = executer(CryptoWorker.OPERATION_DECHIFFRER,
+            fichiersCles.clePrivee(nomUtilisateur), contenuChiffre);
+        return FormatChiffre.normaliserClair(contenuChiffre, new String(resultat, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Arrête tous les processus du pool
+     */
+    @Override
+    public void fermer() {
+        synchronized (workers) {
+            ferme = true;
+            for (CryptoWorker worker : workers) {
+                worker.arreter();
+            }
+            workers.clear();
+        }
+        disponibles.clear();
+    }
+
+    private byte[] executer(byte operation, String premier, String second) throws CryptoException {
+        CryptoWorker worker = emprunter();
+        try {
+            return worker.executer(operation, premier, second);
+        } finally {
+            rendre(worker);
+        }
+    }
+
+    /**
+     * Retourne un processus inactif, en lance un nouveau si le pool n'est pas plein,
+     * sinon attend qu'un processus se libère (au plus DELAI_EMPRUNT_MS)
+     * L'attente revérifie régulièrement le pool : une place libérée par un processus écarté est reprise
+     */
+    private CryptoWorker emprunter() throws CryptoException {
+        long limite = System.currentTimeMillis() + DELAI_EMPRUNT_MS;
+        while (true) {
+            CryptoWorker worker = disponibles.poll();
+            if (worker != null) {
+                return worker;
+            }
+
+            synchronized (workers) {
+                if (ferme) {
+                    throw new CryptoException("Moteur de chiffrement fermé");
+                }
+                if (workers.size() < taille) {
+                    worker = new CryptoWorker(CRYPTO_EXECUTABLE);
+                    workers.add(worker);
+                    return worker;
+                }
+            }
+
+            if (System.currentTimeMillis() >= limite) {
+                throw new CryptoException("Aucun processus de chiffrement libre après " + DELAI_EMPRUNT_MS + " ms");
+            }
+            try {
+                worker = disponibles.poll(ATTENTE_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CryptoException("Attente d'un processus interrompue", e);
+            }
+            if (worker != null) {
+                return worker;
+            }
+        }
+    }
+
+    /**
+     * Remet un processus dans le pool, ou l'écarte s'il n'est plus utilisable et lance son remplaçant
+     */
+    private void rendre(CryptoWorker worker) {
+        if (worker.estDisponible() && !ferme) {
+            disponibles.offer(worker);
+            return;
+        }
+
+        worker.arreter();
+        CryptoWorker remplacant = null;
+        synchronized (workers) {
+            workers.remove(worker);
+            if (ferme) {
+                return;
+            }
+            try {
+                remplacant = new CryptoWorker(CRYPTO_EXECUTABLE);
+                workers.add(remplacant);
+            } catch (CryptoException e) {
+                // La place reste libre : le prochain emprunt retentera le lancement
+                System.err.println("Remplacement d'un processus de chiffrement impossible: " + e.getMessage());
+            }
+        }
+        if (remplacant != null) {
+            disponibles.offer(remplacant);
+        }
+    }
+}
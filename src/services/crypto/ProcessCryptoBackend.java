@@ -0,0 +1,280 @@
+package services.crypto;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import exceptions.CryptoException;
+
+/**
+ * Moteur de chiffrement qui délègue chaque opération à l'exécutable C ./crypto
+ * Un processus est lancé par appel. Les données transitent soit par les flux
+ * standard du processus (mode FLUX, par défaut), soit par des fichiers temporaires (mode FICHIERS)
+ */
+public class ProcessCryptoBackend implements CryptoBackend {
+    // Chemin vers l'exécutable de chiffrement
+    private static final String CRYPTO_EXECUTABLE = "./crypto";
+    // Répertoire temporaire pour les fichiers de chiffrement
+    private static final String TEMP_DIR = "temp/";
+    // Nom de fichier désignant l'entrée/sortie standard pour le module C
+    private static final String FLUX_STANDARD = "-";
+
+    /**
+     * Mode d'échange des données avec le processus C
+     */
+    public enum Echange {
+        FICHIERS,
+        FLUX
+    }
+
+    private final FichiersCles fichiersCles;
+    private final Echange echange;
+
+    public ProcessCryptoBackend(FichiersCles fichiersCles) {
+        this(fichiersCles, Echange.FLUX);
+    }
+
+    public ProcessCryptoBackend(FichiersCles fichiersCles, Echange echange) {
+        this.fichiersCles = fichiersCles;
+        this.echange = echange;
+        if (echange == Echange.FICHIERS) {
+            new File(TEMP_DIR).mkdir();
+        }
+    }
+
+    @Override
+    public void genererCles(String nomUtilisateur) throws CryptoException {
+        executer(
+            CRYPTO_EXECUTABLE,
+            "generer",
+            fichiersCles.clePublique(nomUtilisateur),
+            fichiersCles.clePrivee(nomUtilisateur)
+        );
+    }
+
+    /**
+     * Génère les clés dans des fichiers temporaires, puis les relit
+     * La sortie du module C est écartée : la génération se fait en arrière-plan
+     */
+    @Override
+    public PaireCles genererPaire() throws CryptoException {
+        File publique = FichiersCles.creerFichierTemporaire();
+        File privee = FichiersCles.creerFichierTemporaire();
+        try {
+            executerSansSortie(CRYPTO_EXECUTABLE, "generer", publique.getPath(), privee.getPath());
+            return new PaireCles(CleRSA.lire(publique.getPath(), true), CleRSA.lire(privee.getPath(), false));
+        } finally {
+            publique.delete();
+            privee.delete();
+        }
+    }
+
+    @Override
+    public String chiffrer(String nomDestinataire, String message) throws CryptoException {
+        if (echange == Echange.FLUX) {
+            // Le chiffré est lu directement sur la sortie standard du processus
+            String contenu = executerEnFlux(null,
+                CRYPTO_EXECUTABLE,
+                "chiffrer",
+                fichiersCles.clePublique(nomDestinataire),
+                message,
+                FLUX_STANDARD
+            );
+            return contenu.trim();
+        }
+
+        File fichierChiffre = creerFichierTemporaire(".enc");
+
+        // Commande de chiffrement avec clé publique, message et fichier de sortie
+        executer(
+            CRYPTO_EXECUTABLE,
+            "chiffrer",
+            fichiersCles.clePublique(nomDestinataire),
+            message,
+            fichierChiffre.getPath()
+        );
+
+        try (BufferedReader fileReader = new BufferedReader(new FileReader(fichierChiffre))) {
+            // Construction du contenu chiffré
+            StringBuilder contenu = new StringBuilder();
+            String line;
+            while ((line = fileReader.readLine()) != null) {
+                contenu.append(line).append("\n");
+            }
+            return contenu.toString().trim();
+        } catch (IOException e) {
+            throw new CryptoException("Erreur lors du chiffrement: " + e.getMessage(), e);
+        } finally {
+            // Suppression du fichier temporaire
+            fichierChiffre.delete();
+        }
+    }
+
+    @Override
+    public String dechiffrer(String nomUtilisateur, String contenuChiffre) throws CryptoException {
+        if (echange == Echange.FLUX) {
+            // Le chiffré est écrit sur l'entrée standard, le clair lu sur la sortie standard
+            String contenu = executerEnFlux(contenuChiffre,
+                CRYPTO_EXECUTABLE,
+                "dechiffrer",
+                fichiersCles.clePrivee(nomUtilisateur),
+                FLUX_STANDARD,
+                FLUX_STANDARD
+            );
+            return FormatChiffre.normaliserClair(contenuChiffre, contenu);
+        }
+
+        // Fichiers temporaires pour le chiffré et le déchiffré
+        File fichierChiffre = creerFichierTemporaire(".enc");
+        File fichierDechiffre = creerFichierTemporaire(".dec");
+
+        try {
+            // Écriture du contenu chiffré dans un fichier temporaire
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(fichierChiffre))) {
+                writer.write(contenuChiffre);
+            }
+
+            // Commande de déchiffrement
+            executer(
+                CRYPTO_EXECUTABLE,
+                "dechiffrer",
+                fichiersCles.clePrivee(nomUtilisateur),
+                fichierChiffre.getPath(),
+                fichierDechiffre.getPath()
+            );
+
+            try (BufferedReader fileReader = new BufferedReader(new FileReader(fichierDechiffre))) {
+                StringBuilder contenu = new StringBuilder();
+                String line;
+                while ((line = fileReader.readLine()) != null) {
+                    contenu.append(line);
+                }
+                return contenu.toString();
+            }
+        } catch (IOException e) {
+            throw new CryptoException("Erreur lors du déchiffrement: " + e.getMessage(), e);
+        } finally {
+            // Nettoyage des fichiers temporaires
+            fichierChiffre.delete();
+            fichierDechiffre.delete();
+        }
+    }
+
+    /**
+     * Crée un fichier temporaire au nom unique (pas de collision entre deux messages simultanés)
+     */
+    private File creerFichierTemporaire(String suffixe) throws CryptoException {
+        try {
+            return File.createTempFile("msg_", suffixe, new File(TEMP_DIR));
+        } catch (IOException e) {
+            throw new CryptoException("Impossible de créer un fichier temporaire: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Lance l'exécutable C, affiche sa sortie et vérifie son code de retour
+     */
+    private void executer(String... commande) throws CryptoException {
+        try {
+            ProcessBuilder pb = new ProcessBuilder(commande);
+            // Redirige les erreurs vers la sortie standard
+            pb.redirectErrorStream(true);
+            Process process = pb.start();
+
+            // Affiche chaque ligne de sortie du processus
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String ligne;
+                while ((ligne = reader.readLine()) != null) {
+                    System.out.println(ligne);
+                }
+            }
+
+            attendre(process);
+        } catch (IOException e) {
+            throw new CryptoException("Erreur I/O avec le module C: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Lance l'exécutable C sans afficher sa sortie et vérifie son code de retour
+     */
+    private void executerSansSortie(String... commande) throws CryptoException {
+        try {
+            Process process = new ProcessBuilder(commande)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+            process.getOutputStream().close();
+            attendre(process);
+        } catch (IOException e) {
+            throw new CryptoException("Erreur I/O avec le module C: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Lance l'exécutable C en lui transmettant une entrée sur stdin et retourne sa sortie standard
+     * Les messages d'état du module C (stderr) sont transmis tels quels au terminal
+     */
+    private String executerEnFlux(String entree, String... commande) throws CryptoException {
+        try {
+            ProcessBuilder pb = new ProcessBuilder(commande);
+            pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+            Process process = pb.start();
+
+            // L'écriture se fait dans un thread séparé pour éviter un interblocage
+            // si le processus remplit sa sortie avant d'avoir tout lu
+            Thread ecrivain = null;
+            if (entree != null) {
+                ecrivain = new Thread(() -> {
+                    try (OutputStream stdin = process.getOutputStream()) {
+                        stdin.write(entree.getBytes(StandardCharsets.UTF_8));
+                    } catch (IOException e) {
+                        // Le processus s'est arrêté avant la fin de l'écriture: le code de retour le signalera
+                    }
+                });
+                ecrivain.start();
+            } else {
+                process.getOutputStream().close();
+            }
+
+            ByteArrayOutputStream sortie = new ByteArrayOutputStream();
+            try (InputStream stdout = process.getInputStream()) {
+                stdout.transferTo(sortie);
+            }
+
+            if (ecrivain != null) {
+                ecrivain.join();
+            }
+            attendre(process);
+            return new String(sortie.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new CryptoException("Erreur I/O avec le module C: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CryptoException("Processus interrompu: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Attend la fin du processus et vérifie son code de retour (0 = succès)
+     */
+    private void attendre(Process process) throws CryptoException {
+        try {
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new CryptoException("Le module C a échoué (code " + exitCode + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CryptoException("Processus interrompu: " + e.getMessage(), e);
+        }
+    }
+}